@@ -0,0 +1,47 @@
+#!/usr/bin/env bash
+# Builds an AppCDS archive (JDK 17 dynamic class data sharing) from a training run of the application, so that later
+# starts map the already parsed and verified classes instead of loading them from the jars.
+#
+# Usage: scripts/build-cds-archive.sh [upstream base URL]
+#   Packages the application if needed and unpacks it to target/cds, because CDS can't archive classes loaded from
+#   the nested jars of the Spring Boot jar. The training run starts the application with the full warm-up (see
+#   StartupWarmup), which loads the classes of the hot paths, and stops it once it is ready.
+#   Run the archived application with:
+#     java -XX:SharedArchiveFile=target/cds/countryinfo.jsa @target/cds/java.args [application arguments]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+UPSTREAM=${1:-https://restcountries.com/v3.1}
+PORT=${PORT:-18081}
+MVN=${MVN:-sh ./mvnw}
+JAR=target/countryinfo-0.0.1-SNAPSHOT.jar
+CDS=target/cds
+
+if [ ! -f "$JAR" ]; then
+    $MVN -B -q -DskipTests package
+fi
+
+# the application classes as a jar and the dependencies next to it; CDS only accepts jars on the class path
+rm -rf "$CDS"
+mkdir -p "$CDS/unpacked" "$CDS/lib"
+(cd "$CDS/unpacked" && jar xf "../../../$JAR")
+jar cf "$CDS/countryinfo.jar" -C "$CDS/unpacked/BOOT-INF/classes" .
+cp "$CDS"/unpacked/BOOT-INF/lib/*.jar "$CDS/lib/"
+rm -rf "$CDS/unpacked"
+# the class path must be exactly the same in the training run and later runs, so it is written down once
+CLASSPATH_LIST=$(printf ":%s" "$CDS/countryinfo.jar" "$CDS"/lib/*.jar)
+printf -- "-cp %s\nie.tcd.scss.countryinfo.CountryinfoApplication\n" "${CLASSPATH_LIST:1}" > "$CDS/java.args"
+
+java -XX:ArchiveClassesAtExit="$CDS/countryinfo.jsa" @"$CDS/java.args" \
+    --server.port="$PORT" --countryinfo.upstream.base-url="$UPSTREAM" > "$CDS/training.log" 2>&1 &
+pid=$!
+until curl -fs -o /dev/null "http://localhost:$PORT/actuator/health/readiness"; do
+    if ! kill -0 "$pid" 2> /dev/null; then
+        echo "Training run failed, see $CDS/training.log" >&2
+        exit 1
+    fi
+    sleep 0.1
+done
+kill "$pid" # the archive is written when the JVM exits
+wait "$pid" || true
+ls -l "$CDS/countryinfo.jsa"
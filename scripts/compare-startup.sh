@@ -0,0 +1,91 @@
+#!/usr/bin/env bash
+# Compares the cold start of the JVM build, the JVM build with Spring AOT, the JVM build with an AppCDS archive, a
+# CRaC restore and the GraalVM native image: time until the first request is served, time until the instance is
+# ready (warm-up included) and resident memory (RSS).
+#
+# Usage: scripts/compare-startup.sh [upstream base URL]
+#   The data set is loaded from the upstream at startup, e.g. from a local stand-in instead of restcountries.com.
+#   The native image is only built and measured if native-image (GraalVM 22.3+) is on the PATH, the CRaC restore
+#   only if CRAC_JAVA points to the java command of a CRaC JDK (e.g. Azul Zulu with CRaC).
+#   RUNS (default 3) starts per build; the median is reported. MVN overrides the Maven command (default ./mvnw).
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+UPSTREAM=${1:-https://restcountries.com/v3.1}
+RUNS=${RUNS:-3}
+PORT=${PORT:-18080}
+MVN=${MVN:-sh ./mvnw}
+JAR=target/countryinfo-0.0.1-SNAPSHOT.jar
+NATIVE=target/countryinfo
+# the JIT replay is pointless for a native image and would only make the JVM builds look slower to get ready
+APP_ARGS=(--server.port="$PORT" --countryinfo.upstream.base-url="$UPSTREAM" --countryinfo.warmup.replay-rounds=0)
+
+$MVN -B -q -Pnative -DskipTests package
+if command -v native-image > /dev/null; then
+    $MVN -B -q -Pnative -DskipTests native:compile
+fi
+MVN=$MVN scripts/build-cds-archive.sh "$UPSTREAM" > /dev/null
+if [ -n "${CRAC_JAVA:-}" ]; then
+    # checkpoint after the full warm-up; the JVM exits once the checkpoint is written
+    rm -rf target/crac
+    "$CRAC_JAVA" -XX:CRaCCheckpointTo=target/crac -jar "$JAR" --server.port="$PORT" \
+        --countryinfo.upstream.base-url="$UPSTREAM" --countryinfo.crac.checkpoint-on-ready=true \
+        > target/startup-crac-checkpoint.log 2>&1 || true
+fi
+
+now_ms() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+rss_mb() {
+    awk '/VmRSS/ { printf "%.0f", $2 / 1024 }' "/proc/$1/status"
+}
+
+wait_for() {
+    until curl -fs -o /dev/null "$1"; do
+        sleep 0.005
+    done
+}
+
+median() {
+    sort -n | awk 'NF { v[++n] = $1 } END { print v[int((n + 1) / 2)] }'
+}
+
+# measure <name> <command...>: prints name, first request ms, ready ms, RSS MB when ready and after 1000 requests
+measure() {
+    local name=$1
+    shift
+    local first ready rss_ready rss_load
+    for _ in $(seq "$RUNS"); do
+        local start pid
+        start=$(now_ms)
+        "$@" > "target/startup-$name.log" 2>&1 &
+        pid=$!
+        wait_for "http://localhost:$PORT/countries/autocomplete?prefix=g"
+        first+="$(($(now_ms) - start))"$'\n'
+        wait_for "http://localhost:$PORT/actuator/health/readiness"
+        ready+="$(($(now_ms) - start))"$'\n'
+        rss_ready+="$(rss_mb "$pid")"$'\n'
+        for _ in $(seq 1000); do
+            echo "url = \"http://localhost:$PORT/countries/autocomplete?prefix=g\""
+            echo "output = /dev/null"
+        done | curl -fs --config - > /dev/null
+        rss_load+="$(rss_mb "$pid")"$'\n'
+        kill "$pid"
+        wait "$pid" 2> /dev/null || true
+    done
+    printf "%-8s %16s %10s %14s %14s\n" "$name" "$(median <<< "$first")" "$(median <<< "$ready")" \
+        "$(median <<< "$rss_ready")" "$(median <<< "$rss_load")"
+}
+
+printf "%-8s %16s %10s %14s %14s\n" "build" "first request ms" "ready ms" "RSS ready MB" "RSS 1k req MB"
+measure jvm java -jar "$JAR" "${APP_ARGS[@]}"
+measure jvm-aot java -Dspring.aot.enabled=true -jar "$JAR" "${APP_ARGS[@]}"
+measure jvm-cds java -XX:SharedArchiveFile=target/cds/countryinfo.jsa @target/cds/java.args "${APP_ARGS[@]}"
+if [ -d target/crac ]; then
+    # the restored process keeps the arguments it was checkpointed with
+    measure crac "$CRAC_JAVA" -XX:CRaCRestoreFrom=target/crac
+fi
+if [ -x "$NATIVE" ]; then
+    measure native "$NATIVE" "${APP_ARGS[@]}"
+fi
@@ -1,17 +1,89 @@
 package ie.tcd.scss.countryinfo;
 
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import ie.tcd.scss.countryinfo.limit.AdaptiveConcurrencyLimiter;
+import ie.tcd.scss.countryinfo.query.QueryExecutor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
 @SpringBootApplication
+@EnableConfigurationProperties(CountryInfoProperties.class)
+@EnableScheduling
 public class CountryinfoApplication {
 
+    /**
+     * The pool of connections to the restcountries API; a bean so that it can be emptied before a checkpoint.
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager upstreamConnectionManager(CountryInfoProperties properties) {
+        int maxConnections = properties.getUpstream().getMaxConnections();
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections) // all calls go to the same host
+                .build();
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter upstreamConcurrencyLimiter(CountryInfoProperties properties,
+                                                                 MeterRegistry meterRegistry) {
+        CountryInfoProperties.Upstream.Concurrency settings = properties.getUpstream().getConcurrency();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings.getInitialLimit(),
+                settings.getMinLimit(), settings.getMaxLimit(), settings.getBackoffRatio(),
+                TimeUnit.MILLISECONDS.toNanos(settings.getLatencyThresholdMs()));
+        Gauge.builder("countryinfo.upstream.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .register(meterRegistry);
+        Gauge.builder("countryinfo.upstream.concurrency.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .register(meterRegistry);
+        return limiter;
+    }
+
+    /**
+     * Runs heavy queries over the country data set, in parallel on its own pool if they are large enough.
+     */
+    @Bean(destroyMethod = "close")
+    public QueryExecutor queryExecutor(CountryInfoProperties properties) {
+        CountryInfoProperties.Query settings = properties.getQuery();
+        return new QueryExecutor(settings.getParallelism(), settings.getParallelThresholdNanos(),
+                settings.getMaxParallelQueries());
+    }
+
+    /**
+     * The clock time zone queries are answered for; a bean, so that tests can fix the time.
+     */
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     PoolingHttpClientConnectionManager upstreamConnectionManager,
+                                     AdaptiveConcurrencyLimiter upstreamConcurrencyLimiter) {
+        // built by Spring Boot, so that every upstream call is observed (traced and timed)
+        return builder
+                .additionalInterceptors(upstreamConcurrencyLimiter)
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(
+                        HttpClients.custom()
+                                .setConnectionManager(upstreamConnectionManager)
+                                .setConnectionManagerShared(true) // closed as a bean
+                                .build()))
+                .build();
     }
+
     public static void main(String[] args) {
         SpringApplication.run(CountryinfoApplication.class, args);
     }
@@ -0,0 +1,27 @@
+package ie.tcd.scss.countryinfo.aggregation;
+
+/**
+ * The functions that can be applied to a metric per group. COUNT counts the countries in a group and does not need
+ * a metric; the other functions only consider countries that have a value for the metric.
+ */
+public enum AggregateFunction {
+    COUNT,
+    SUM,
+    AVG,
+    MIN,
+    MAX;
+
+    /**
+     * Parses a request parameter such as "sum" or "AVG".
+     *
+     * @return The matching AggregateFunction, or null if there is none
+     */
+    public static AggregateFunction fromParameter(String parameter) {
+        for (AggregateFunction function : values()) {
+            if (function.name().equalsIgnoreCase(parameter)) {
+                return function;
+            }
+        }
+        return null;
+    }
+}
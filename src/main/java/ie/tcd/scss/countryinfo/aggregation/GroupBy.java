@@ -0,0 +1,54 @@
+package ie.tcd.scss.countryinfo.aggregation;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The Country fields that countries can be grouped by. A country may belong to several groups, e.g. Russia is in
+ * both the "Europe" and the "Asia" continent group, and then counts towards each of them.
+ */
+public enum GroupBy {
+    REGION(c -> single(c.getRegion())),
+    SUBREGION(c -> single(c.getSubregion())),
+    CONTINENT(c -> orEmpty(c.getContinents())),
+    CURRENCY(c -> c.getCurrencies() != null ? c.getCurrencies().keySet() : List.of()), // currency codes
+    LANGUAGE(c -> c.getLanguages() != null ? c.getLanguages().values() : List.of()); // language names
+
+    private final Function<Country, Collection<String>> keys;
+
+    GroupBy(Function<Country, Collection<String>> keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * @return The names of the groups the given country belongs to
+     */
+    public Collection<String> keysOf(Country country) {
+        return keys.apply(country);
+    }
+
+    /**
+     * Parses a request parameter such as "region" or "CURRENCY".
+     *
+     * @return The matching GroupBy, or null if there is none
+     */
+    public static GroupBy fromParameter(String parameter) {
+        for (GroupBy groupBy : values()) {
+            if (groupBy.name().equalsIgnoreCase(parameter)) {
+                return groupBy;
+            }
+        }
+        return null;
+    }
+
+    private static Collection<String> single(String key) {
+        return key == null || key.isEmpty() ? List.of() : List.of(key);
+    }
+
+    private static Collection<String> orEmpty(List<String> keys) {
+        return keys != null ? keys : List.of();
+    }
+}
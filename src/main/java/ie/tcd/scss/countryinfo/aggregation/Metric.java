@@ -0,0 +1,41 @@
+package ie.tcd.scss.countryinfo.aggregation;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The numeric Country fields that can be aggregated. Missing values are represented as NaN and skipped.
+ */
+public enum Metric {
+    POPULATION(c -> c.hasPopulation() ? c.getPopulation() : Double.NaN),
+    AREA(c -> c.getArea() != null ? c.getArea() : Double.NaN),
+    GINI(c -> c.getGini() != null && c.getGini().latestValue() != null ? c.getGini().latestValue() : Double.NaN);
+
+    private final ToDoubleFunction<Country> value;
+
+    Metric(ToDoubleFunction<Country> value) {
+        this.value = value;
+    }
+
+    /**
+     * @return The value of this metric for the given country, or NaN if the country has none
+     */
+    public double valueOf(Country country) {
+        return value.applyAsDouble(country);
+    }
+
+    /**
+     * Parses a request parameter such as "population" or "GINI".
+     *
+     * @return The matching Metric, or null if there is none
+     */
+    public static Metric fromParameter(String parameter) {
+        for (Metric metric : values()) {
+            if (metric.name().equalsIgnoreCase(parameter)) {
+                return metric;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,111 @@
+package ie.tcd.scss.countryinfo.aggregation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Count, sum, minimum and maximum of every metric per group. All aggregate functions can be answered from these
+ * without going back to the countries.
+ *
+ * A rollup is filled in by {@link CountryColumns#rollup} (possibly in parallel, one partial rollup per part of the
+ * columns, which are then merged) and is read-only afterwards.
+ */
+public final class Rollup {
+
+    private final List<String> groups;
+    private final int[] countries;      // [group]
+    private final int[][] counts;       // [metric][group], number of countries with a value for the metric
+    private final double[][] sums;      // [metric][group]
+    private final double[][] minimums;  // [metric][group]
+    private final double[][] maximums;  // [metric][group]
+
+    Rollup(List<String> groups) {
+        int metrics = Metric.values().length;
+        this.groups = groups;
+        this.countries = new int[groups.size()];
+        this.counts = new int[metrics][groups.size()];
+        this.sums = new double[metrics][groups.size()];
+        this.minimums = new double[metrics][groups.size()];
+        this.maximums = new double[metrics][groups.size()];
+        for (int m = 0; m < metrics; m++) {
+            Arrays.fill(minimums[m], Double.POSITIVE_INFINITY);
+            Arrays.fill(maximums[m], Double.NEGATIVE_INFINITY);
+        }
+    }
+
+    /**
+     * Adds one country to the groups it belongs to.
+     *
+     * @param groupIds The groups of the country
+     * @param metricColumns The values of each metric (indexed by Metric ordinal) for all countries, NaN if missing
+     * @param country The position of the country in the columns
+     */
+    void add(int[] groupIds, double[][] metricColumns, int country) {
+        for (int group : groupIds) {
+            countries[group]++;
+            for (int m = 0; m < metricColumns.length; m++) {
+                double value = metricColumns[m][country];
+                if (!Double.isNaN(value)) {
+                    counts[m][group]++;
+                    sums[m][group] += value;
+                    minimums[m][group] = Math.min(minimums[m][group], value);
+                    maximums[m][group] = Math.max(maximums[m][group], value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the partial results of another rollup over the same groups to this one.
+     */
+    void merge(Rollup other) {
+        for (int g = 0; g < groups.size(); g++) {
+            countries[g] += other.countries[g];
+            for (int m = 0; m < counts.length; m++) {
+                counts[m][g] += other.counts[m][g];
+                sums[m][g] += other.sums[m][g];
+                minimums[m][g] = Math.min(minimums[m][g], other.minimums[m][g]);
+                maximums[m][g] = Math.max(maximums[m][g], other.maximums[m][g]);
+            }
+        }
+    }
+
+    public List<String> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Returns the result of the given function for every group, in alphabetical order of the group names. Groups
+     * without any country, or (for functions other than COUNT) without any value for the metric, are left out.
+     *
+     * @param function The aggregate function
+     * @param metric The metric to aggregate; ignored for COUNT
+     * @return The value per group name
+     */
+    public Map<String, Double> toMap(AggregateFunction function, Metric metric) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int g = 0; g < groups.size(); g++) {
+            if (function == AggregateFunction.COUNT) {
+                if (countries[g] > 0) {
+                    result.put(groups.get(g), (double) countries[g]);
+                }
+                continue;
+            }
+            int m = metric.ordinal();
+            if (counts[m][g] == 0) {
+                continue;
+            }
+            double value = switch (function) {
+                case SUM -> sums[m][g];
+                case AVG -> sums[m][g] / counts[m][g];
+                case MIN -> minimums[m][g];
+                case MAX -> maximums[m][g];
+                default -> throw new IllegalArgumentException("Unsupported function " + function);
+            };
+            result.put(groups.get(g), value);
+        }
+        return result;
+    }
+}
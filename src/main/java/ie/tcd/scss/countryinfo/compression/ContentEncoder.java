@@ -0,0 +1,20 @@
+package ie.tcd.scss.countryinfo.compression;
+
+/**
+ * Compresses response bodies with one HTTP content coding, e.g. gzip. Encoders are Spring beans, so another coding
+ * (e.g. brotli, which the JDK has no encoder for) can be added with a bean and the
+ * countryinfo.compression.precompressed-encodings property.
+ */
+public interface ContentEncoder {
+
+    /**
+     * @return The name of the content coding as used in the Accept-Encoding and Content-Encoding headers
+     */
+    String getName();
+
+    /**
+     * @param body The uncompressed body
+     * @return The compressed body
+     */
+    byte[] encode(byte[] body);
+}
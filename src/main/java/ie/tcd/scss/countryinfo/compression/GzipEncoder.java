@@ -0,0 +1,37 @@
+package ie.tcd.scss.countryinfo.compression;
+
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses with gzip at the highest level. That costs more CPU than the server's on-the-fly compression, which is
+ * fine because precompressed bodies are only encoded once.
+ */
+@Component
+public class GzipEncoder implements ContentEncoder {
+
+    @Override
+    public String getName() {
+        return "gzip";
+    }
+
+    @Override
+    public byte[] encode(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen when writing to memory
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,107 @@
+package ie.tcd.scss.countryinfo.compression;
+
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps compressed copies of response bodies that only change with the country data set, so that they are compressed
+ * once per version of the data set instead of once per request.
+ */
+@Component
+public class PrecompressedBodies {
+
+    private final List<ContentEncoder> encoders = new ArrayList<>(); // most preferred first
+    private final Map<Key, Body> bodies = new ConcurrentHashMap<>();
+
+    public PrecompressedBodies(List<ContentEncoder> availableEncoders, CountryInfoProperties properties) {
+        for (String name : properties.getCompression().getPrecompressedEncodings()) {
+            availableEncoders.stream()
+                    .filter(encoder -> encoder.getName().equalsIgnoreCase(name.trim()))
+                    .findFirst()
+                    .ifPresent(encoders::add);
+        }
+    }
+
+    /**
+     * Picks the most preferred content coding that the client accepts.
+     *
+     * @param acceptEncoding The Accept-Encoding header of the request, may be null
+     * @return The encoder, or null if the client accepts none of the configured codings
+     */
+    public ContentEncoder negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        List<String> accepted = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (isRejected(parts)) {
+                rejected.add(name);
+            } else {
+                accepted.add(name);
+            }
+        }
+        for (ContentEncoder encoder : encoders) {
+            // a coding rejected by name is not accepted through "*", e.g. "gzip;q=0, *"
+            if (accepted.contains(encoder.getName())
+                    || accepted.contains("*") && !rejected.contains(encoder.getName())) {
+                return encoder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the compressed body of a resource, compressing it if there is no copy for the given version yet.
+     *
+     * @param resource The name of the resource, e.g. "export"
+     * @param version The version of the data set the body is built from
+     * @param encoder The encoder returned by negotiate
+     * @param body Produces the uncompressed body
+     * @return The compressed body
+     */
+    public byte[] get(String resource, long version, ContentEncoder encoder, Supplier<byte[]> body) {
+        Key key = new Key(resource, encoder.getName());
+        Body cached = bodies.get(key);
+        if (cached != null && cached.version() == version) {
+            return cached.bytes();
+        }
+        // concurrent requests may compress the same body twice, which is cheaper than making them wait for each other
+        byte[] bytes = encoder.encode(body.get());
+        bodies.merge(key, new Body(version, bytes),
+                (old, created) -> old.version() > created.version() ? old : created);
+        return bytes;
+    }
+
+    /**
+     * @return Whether a coding of the Accept-Encoding header has a quality of 0, e.g. "gzip;q=0"
+     */
+    private static boolean isRejected(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) == 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private record Key(String resource, String encoding) {
+    }
+
+    private record Body(long version, byte[] bytes) {
+    }
+}
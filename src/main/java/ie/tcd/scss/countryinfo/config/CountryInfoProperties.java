@@ -0,0 +1,591 @@
+package ie.tcd.scss.countryinfo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Application settings bound from the "countryinfo.*" properties in application.properties.
+ */
+@ConfigurationProperties(prefix = "countryinfo")
+public class CountryInfoProperties {
+
+    private Upstream upstream = new Upstream();
+    private Autocomplete autocomplete = new Autocomplete();
+    private Refresh refresh = new Refresh();
+    private Batch batch = new Batch();
+    private Compression compression = new Compression();
+    private Warmup warmup = new Warmup();
+    private Crac crac = new Crac();
+    private RateLimit rateLimit = new RateLimit();
+    private Query query = new Query();
+    private Similarity similarity = new Similarity();
+    private Images images = new Images();
+
+    public Upstream getUpstream() {
+        return upstream;
+    }
+
+    public void setUpstream(Upstream upstream) {
+        this.upstream = upstream;
+    }
+
+    public Autocomplete getAutocomplete() {
+        return autocomplete;
+    }
+
+    public void setAutocomplete(Autocomplete autocomplete) {
+        this.autocomplete = autocomplete;
+    }
+
+    public Refresh getRefresh() {
+        return refresh;
+    }
+
+    public void setRefresh(Refresh refresh) {
+        this.refresh = refresh;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public void setBatch(Batch batch) {
+        this.batch = batch;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    public Warmup getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(Warmup warmup) {
+        this.warmup = warmup;
+    }
+
+    public Crac getCrac() {
+        return crac;
+    }
+
+    public void setCrac(Crac crac) {
+        this.crac = crac;
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    public void setQuery(Query query) {
+        this.query = query;
+    }
+
+    public Similarity getSimilarity() {
+        return similarity;
+    }
+
+    public void setSimilarity(Similarity similarity) {
+        this.similarity = similarity;
+    }
+
+    public Images getImages() {
+        return images;
+    }
+
+    public void setImages(Images images) {
+        this.images = images;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(RateLimit rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    /**
+     * Settings for the restcountries API the country information comes from.
+     */
+    public static class Upstream {
+
+        // base URL of the API, e.g. a local stand-in for tests
+        private String baseUrl = "https://restcountries.com/v3.1";
+
+        // size of the pool of connections to the API
+        private int maxConnections = 200;
+
+        private Concurrency concurrency = new Concurrency();
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public void setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public Concurrency getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(Concurrency concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        /**
+         * @param path The path below the base URL, starting with a slash, e.g. "/all"
+         * @return The URL of the path
+         */
+        public String url(String path) {
+            return baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) + path : baseUrl + path;
+        }
+
+        /**
+         * Settings for the adaptive limit on concurrent calls to the API (see AdaptiveConcurrencyLimiter).
+         */
+        public static class Concurrency {
+
+            private int initialLimit = 20;
+            private int minLimit = 2;
+            private int maxLimit = 200;
+
+            // factor the limit is multiplied with when a call fails, is throttled or is too slow
+            private double backoffRatio = 0.9;
+
+            // calls slower than this count as a sign of overload
+            private long latencyThresholdMs = 2_000;
+
+            public int getInitialLimit() {
+                return initialLimit;
+            }
+
+            public void setInitialLimit(int initialLimit) {
+                this.initialLimit = initialLimit;
+            }
+
+            public int getMinLimit() {
+                return minLimit;
+            }
+
+            public void setMinLimit(int minLimit) {
+                this.minLimit = minLimit;
+            }
+
+            public int getMaxLimit() {
+                return maxLimit;
+            }
+
+            public void setMaxLimit(int maxLimit) {
+                this.maxLimit = maxLimit;
+            }
+
+            public double getBackoffRatio() {
+                return backoffRatio;
+            }
+
+            public void setBackoffRatio(double backoffRatio) {
+                this.backoffRatio = backoffRatio;
+            }
+
+            public long getLatencyThresholdMs() {
+                return latencyThresholdMs;
+            }
+
+            public void setLatencyThresholdMs(long latencyThresholdMs) {
+                this.latencyThresholdMs = latencyThresholdMs;
+            }
+        }
+    }
+
+    /**
+     * Settings for the /countries/autocomplete endpoint.
+     */
+    public static class Autocomplete {
+
+        // number of completions cached per prefix and returned per request
+        private int maxResults = 10;
+
+        public int getMaxResults() {
+            return maxResults;
+        }
+
+        public void setMaxResults(int maxResults) {
+            this.maxResults = maxResults;
+        }
+    }
+
+    /**
+     * Settings for the periodic refresh of the country data set.
+     */
+    public static class Refresh {
+
+        // delay between two refreshes of the data set
+        private long intervalMs = 3_600_000;
+
+        // number of country changes retained for the /countries/changes endpoint
+        private int changeLogSize = 1000;
+
+        public long getIntervalMs() {
+            return intervalMs;
+        }
+
+        public void setIntervalMs(long intervalMs) {
+            this.intervalMs = intervalMs;
+        }
+
+        public int getChangeLogSize() {
+            return changeLogSize;
+        }
+
+        public void setChangeLogSize(int changeLogSize) {
+            this.changeLogSize = changeLogSize;
+        }
+    }
+
+    /**
+     * Settings for the /countries/batch endpoint.
+     */
+    public static class Batch {
+
+        // maximum number of queries in one request
+        private int maxQueries = 10_000;
+
+        // number of threads resolving queries that are not in the snapshot against the restcountries API
+        private int upstreamConcurrency = 4;
+
+        // number of codes resolved per /alpha?codes= call
+        private int codesPerUpstreamCall = 50;
+
+        // maximum number of distinct names per request that are not in the snapshot and are looked up upstream, one
+        // call each; the other names get an error result
+        private int maxUpstreamNames = 20;
+
+        public int getMaxQueries() {
+            return maxQueries;
+        }
+
+        public void setMaxQueries(int maxQueries) {
+            this.maxQueries = maxQueries;
+        }
+
+        public int getUpstreamConcurrency() {
+            return upstreamConcurrency;
+        }
+
+        public void setUpstreamConcurrency(int upstreamConcurrency) {
+            this.upstreamConcurrency = upstreamConcurrency;
+        }
+
+        public int getCodesPerUpstreamCall() {
+            return codesPerUpstreamCall;
+        }
+
+        public void setCodesPerUpstreamCall(int codesPerUpstreamCall) {
+            this.codesPerUpstreamCall = codesPerUpstreamCall;
+        }
+
+        public int getMaxUpstreamNames() {
+            return maxUpstreamNames;
+        }
+
+        public void setMaxUpstreamNames(int maxUpstreamNames) {
+            this.maxUpstreamNames = maxUpstreamNames;
+        }
+    }
+
+    /**
+     * Settings for responses that are compressed once and then served from memory. All other responses are
+     * compressed by the embedded server, see the server.compression.* properties.
+     */
+    public static class Compression {
+
+        // content codings of the precompressed responses, most preferred first; each needs a ContentEncoder bean
+        private List<String> precompressedEncodings = new ArrayList<>(List.of("gzip"));
+
+        public List<String> getPrecompressedEncodings() {
+            return precompressedEncodings;
+        }
+
+        public void setPrecompressedEncodings(List<String> precompressedEncodings) {
+            this.precompressedEncodings = precompressedEncodings;
+        }
+    }
+
+    /**
+     * Settings for the warm-up at startup, which runs before the instance reports itself ready (see StartupWarmup).
+     */
+    public static class Warmup {
+
+        private boolean enabled = true;
+
+        // sample of recorded requests replayed to warm up the hot paths, one "METHOD path [JSON body]" per line
+        private String requests = "classpath:warmup/requests.txt";
+
+        // time the replay may take; it stops after the current round once this is used up
+        private long replayBudgetMs = 10_000;
+
+        // maximum number of times the sample is replayed
+        private int replayRounds = 20;
+
+        // timeout of each warm-up request
+        private long requestTimeoutMs = 5_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getRequests() {
+            return requests;
+        }
+
+        public void setRequests(String requests) {
+            this.requests = requests;
+        }
+
+        public long getReplayBudgetMs() {
+            return replayBudgetMs;
+        }
+
+        public void setReplayBudgetMs(long replayBudgetMs) {
+            this.replayBudgetMs = replayBudgetMs;
+        }
+
+        public int getReplayRounds() {
+            return replayRounds;
+        }
+
+        public void setReplayRounds(int replayRounds) {
+            this.replayRounds = replayRounds;
+        }
+
+        public long getRequestTimeoutMs() {
+            return requestTimeoutMs;
+        }
+
+        public void setRequestTimeoutMs(long requestTimeoutMs) {
+            this.requestTimeoutMs = requestTimeoutMs;
+        }
+    }
+
+    /**
+     * Settings for checkpoint/restore with a CRaC JDK (see CheckpointRestoreSupport).
+     */
+    public static class Crac {
+
+        // take a checkpoint once the application is ready, i.e. after the warm-up; needs -XX:CRaCCheckpointTo
+        private boolean checkpointOnReady = false;
+
+        public boolean isCheckpointOnReady() {
+            return checkpointOnReady;
+        }
+
+        public void setCheckpointOnReady(boolean checkpointOnReady) {
+            this.checkpointOnReady = checkpointOnReady;
+        }
+    }
+
+    /**
+     * Settings for the per-client rate limit on /countries/** (see RateLimitFilter).
+     */
+    public static class RateLimit {
+
+        private boolean enabled = true;
+
+        // sustained rate allowed per client
+        private double requestsPerSecond = 20;
+
+        // largest burst allowed per client
+        private int burst = 40;
+
+        // header identifying the client; clients without it are identified by their IP address
+        private String apiKeyHeader = "X-API-Key";
+
+        // API keys that get a limit of their own; other keys are ignored, so that rotating keys doesn't escape the
+        // limit of the client's IP address
+        private List<String> apiKeys = new ArrayList<>();
+
+        // number of clients tracked; beyond that, new clients share one limit
+        private int maxClients = 10_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+
+        public String getApiKeyHeader() {
+            return apiKeyHeader;
+        }
+
+        public void setApiKeyHeader(String apiKeyHeader) {
+            this.apiKeyHeader = apiKeyHeader;
+        }
+
+        public List<String> getApiKeys() {
+            return apiKeys;
+        }
+
+        public void setApiKeys(List<String> apiKeys) {
+            this.apiKeys = apiKeys;
+        }
+
+        public int getMaxClients() {
+            return maxClients;
+        }
+
+        public void setMaxClients(int maxClients) {
+            this.maxClients = maxClients;
+        }
+    }
+
+    public static class Query {
+
+        // threads of the pool running heavy queries in parallel; 0 for one per available processor
+        private int parallelism = 0;
+
+        // estimated work (in nanoseconds) from which a query is run in parallel instead of on the request thread.
+        // QueryExecutorBenchmark measured a fixed cost of about 5.3 us for a parallel query; with p threads it pays off
+        // from cost * p / (p - 1), at most twice that for two threads. With the about 250 countries of the data set,
+        // rollups (about 7.5 us) stay below it, batches of more than about 280 queries (40 ns each) and the
+        // similarity table (about 2.3 ms) don't. With one processor the pool has one thread and nothing runs parallel
+        private long parallelThresholdNanos = 11_000;
+
+        // number of queries running in parallel at the same time; further ones run on their request thread
+        private int maxParallelQueries = 4;
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public long getParallelThresholdNanos() {
+            return parallelThresholdNanos;
+        }
+
+        public void setParallelThresholdNanos(long parallelThresholdNanos) {
+            this.parallelThresholdNanos = parallelThresholdNanos;
+        }
+
+        public int getMaxParallelQueries() {
+            return maxParallelQueries;
+        }
+
+        public void setMaxParallelQueries(int maxParallelQueries) {
+            this.maxParallelQueries = maxParallelQueries;
+        }
+    }
+
+    public static class Similarity {
+
+        // number of most similar countries precomputed per country, the most /countries/{countryname}/similar returns
+        private int topK = 10;
+
+        public int getTopK() {
+            return topK;
+        }
+
+        public void setTopK(int topK) {
+            this.topK = topK;
+        }
+    }
+
+    /**
+     * Settings for the proxy serving flag and coat of arms images from a local cache (see CountryImageService).
+     */
+    public static class Images {
+
+        // total size of the cached images, kept off-heap
+        private long maxCacheBytes = 64L * 1024 * 1024;
+
+        // images downloaded for every country whenever a new version of the data set is loaded; empty for none
+        private List<String> prefetch = new ArrayList<>(List.of("flag.png", "flag.svg"));
+
+        // how long clients may use a cached image before revalidating it; the image of a country may change with
+        // every refresh of the data set
+        private long maxAgeSeconds = 3_600;
+
+        private long connectTimeoutMs = 2_000;
+        private long readTimeoutMs = 5_000;
+
+        public long getMaxCacheBytes() {
+            return maxCacheBytes;
+        }
+
+        public void setMaxCacheBytes(long maxCacheBytes) {
+            this.maxCacheBytes = maxCacheBytes;
+        }
+
+        public List<String> getPrefetch() {
+            return prefetch;
+        }
+
+        public void setPrefetch(List<String> prefetch) {
+            this.prefetch = prefetch;
+        }
+
+        public long getMaxAgeSeconds() {
+            return maxAgeSeconds;
+        }
+
+        public void setMaxAgeSeconds(long maxAgeSeconds) {
+            this.maxAgeSeconds = maxAgeSeconds;
+        }
+
+        public long getConnectTimeoutMs() {
+            return connectTimeoutMs;
+        }
+
+        public void setConnectTimeoutMs(long connectTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+        }
+
+        public long getReadTimeoutMs() {
+            return readTimeoutMs;
+        }
+
+        public void setReadTimeoutMs(long readTimeoutMs) {
+            this.readTimeoutMs = readTimeoutMs;
+        }
+    }
+}
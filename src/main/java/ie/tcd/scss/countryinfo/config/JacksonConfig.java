@@ -0,0 +1,45 @@
+package ie.tcd.scss.countryinfo.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import ie.tcd.scss.countryinfo.json.FieldProjection;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Configures the Jackson based response formats. Besides JSON, responses are available as CBOR (application/cbor)
+ * and Smile (application/x-jackson-smile) for clients that ask for them in the Accept header; both encode the same
+ * object model as the JSON responses, but are smaller and faster to write and parse.
+ */
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Lets every ObjectMapper built by Spring Boot, and thereby every Jackson message converter, apply sparse
+     * fieldsets (see FieldProjection).
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer fieldProjectionCustomizer() {
+        return builder -> builder
+                .annotationIntrospector(new FieldProjection.DomainFilterIntrospector())
+                .filters(FieldProjection.ALL_FIELDS);
+    }
+
+    /**
+     * Spring MVC would add a CBOR converter by itself, but with a plain ObjectMapper; this one is configured like the
+     * JSON one (e.g. spring.jackson.* properties and the field projection).
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,62 @@
+package ie.tcd.scss.countryinfo.config;
+
+import ie.tcd.scss.countryinfo.domain.CapitalInfo;
+import ie.tcd.scss.countryinfo.domain.Car;
+import ie.tcd.scss.countryinfo.domain.CoatOfArms;
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.domain.Currency;
+import ie.tcd.scss.countryinfo.domain.Demonym;
+import ie.tcd.scss.countryinfo.domain.Flags;
+import ie.tcd.scss.countryinfo.domain.Gini;
+import ie.tcd.scss.countryinfo.domain.IDD;
+import ie.tcd.scss.countryinfo.domain.Maps;
+import ie.tcd.scss.countryinfo.domain.Name;
+import ie.tcd.scss.countryinfo.domain.NativeName;
+import ie.tcd.scss.countryinfo.domain.Translation;
+import ie.tcd.scss.countryinfo.service.BatchRequest;
+import ie.tcd.scss.countryinfo.service.BatchResponse;
+import ie.tcd.scss.countryinfo.service.BatchResult;
+import ie.tcd.scss.countryinfo.service.ChangeFeed;
+import ie.tcd.scss.countryinfo.service.CountryChange;
+import ie.tcd.scss.countryinfo.service.CountryLocalTime;
+import ie.tcd.scss.countryinfo.service.SimilarCountry;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Hints for the GraalVM native image (mvn -Pnative native:compile). Spring AOT finds most of what the application
+ * needs by itself, but not the classes Jackson reads from the restcountries API or writes through a
+ * MappingJacksonValue, nor the resources read at runtime. Without these hints the native image would deserialize
+ * every country as an empty object.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeImageHints.Registrar.class)
+public class NativeImageHints {
+
+    /**
+     * The classes (de)serialized by Jackson; their property types are registered with them.
+     */
+    static final Class<?>[] JSON_TYPES = {
+            // domain: read from the restcountries API and written in the responses
+            CapitalInfo.class, Car.class, CoatOfArms.class, Country.class, Currency.class, Demonym.class,
+            Flags.class, Gini.class, IDD.class, Maps.class, Name.class, NativeName.class,
+            Translation.class,
+            // request and response bodies of the /countries endpoints
+            BatchRequest.class, BatchResponse.class, BatchResult.class, ChangeFeed.class, CountryChange.class,
+            CountryLocalTime.class, SimilarCountry.class
+    };
+
+    static class Registrar implements RuntimeHintsRegistrar {
+
+        private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            bindingRegistrar.registerReflectionHints(hints.reflection(), JSON_TYPES);
+            hints.resources().registerPattern("warmup/requests.txt");
+        }
+    }
+}
@@ -1,11 +1,54 @@
 package ie.tcd.scss.countryinfo.controller;
 
+        import ie.tcd.scss.countryinfo.aggregation.AggregateFunction;
+        import ie.tcd.scss.countryinfo.aggregation.GroupBy;
+        import ie.tcd.scss.countryinfo.aggregation.Metric;
+        import ie.tcd.scss.countryinfo.compression.ContentEncoder;
+        import ie.tcd.scss.countryinfo.compression.PrecompressedBodies;
+        import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
         import ie.tcd.scss.countryinfo.domain.Country;
+        import ie.tcd.scss.countryinfo.image.CountryImage;
+        import ie.tcd.scss.countryinfo.image.ImageCache.CachedImage;
+        import ie.tcd.scss.countryinfo.json.FieldProjection;
+        import ie.tcd.scss.countryinfo.limit.ConcurrencyLimitExceededException;
+        import ie.tcd.scss.countryinfo.service.BatchRequest;
+        import ie.tcd.scss.countryinfo.service.BatchResponse;
+        import ie.tcd.scss.countryinfo.service.ChangeFeed;
+        import ie.tcd.scss.countryinfo.service.CountryAggregationService;
+        import ie.tcd.scss.countryinfo.service.CountryBatchService;
+        import ie.tcd.scss.countryinfo.service.CountryImageService;
+        import ie.tcd.scss.countryinfo.service.CountryLocalTime;
+        import ie.tcd.scss.countryinfo.service.CountryRecord;
         import ie.tcd.scss.countryinfo.service.CountryService;
+        import ie.tcd.scss.countryinfo.service.CountrySnapshot;
+        import ie.tcd.scss.countryinfo.service.CountryTimezoneService;
+        import ie.tcd.scss.countryinfo.service.SimilarCountry;
+        import org.apache.catalina.connector.CoyoteOutputStream;
+        import org.springframework.http.CacheControl;
+        import org.springframework.http.HttpHeaders;
+        import org.springframework.http.HttpStatus;
+        import org.springframework.http.MediaType;
         import org.springframework.http.ResponseEntity;
+        import org.springframework.http.converter.json.MappingJacksonValue;
         import org.springframework.web.bind.annotation.*;
+        import org.springframework.web.client.RestClientException;
+        import org.springframework.web.context.request.WebRequest;
+        import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+        import java.io.ByteArrayOutputStream;
+        import java.io.IOException;
+        import java.io.OutputStream;
+        import java.nio.ByteBuffer;
+        import java.nio.channels.Channels;
+        import java.nio.channels.WritableByteChannel;
+        import java.nio.charset.StandardCharsets;
+        import java.time.Duration;
+        import java.util.EnumMap;
+        import java.util.Iterator;
         import java.util.List;
+        import java.util.Map;
+        import java.util.function.Supplier;
+        import java.util.stream.Stream;
 
 /**
  * This class is responsible for handling requests to the /countries endpoint.
@@ -15,30 +58,156 @@ package ie.tcd.scss.countryinfo.controller;
 @RequestMapping("/countries")
 public class CountryController {
 
+    private static final byte[] NEWLINE = "\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SSE_DATA = "data: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SSE_END_OF_EVENT = "\n\n".getBytes(StandardCharsets.UTF_8);
+
     private final CountryService countryService;
+    private final CountryAggregationService aggregationService;
+    private final CountryBatchService batchService;
+    private final CountryTimezoneService timezoneService;
+    private final CountryImageService imageService;
+    private final PrecompressedBodies precompressedBodies;
+    private final CountryInfoProperties properties;
 
-    public CountryController(CountryService countryService) {
+    public CountryController(CountryService countryService, CountryAggregationService aggregationService,
+                             CountryBatchService batchService, CountryTimezoneService timezoneService,
+                             CountryImageService imageService, PrecompressedBodies precompressedBodies,
+                             CountryInfoProperties properties) {
         this.countryService = countryService;
+        this.aggregationService = aggregationService;
+        this.timezoneService = timezoneService;
+        this.imageService = imageService;
+        this.batchService = batchService;
+        this.precompressedBodies = precompressedBodies;
+        this.properties = properties;
+    }
+
+    /**
+     * This method handles GET requests to /countries/autocomplete?prefix= and returns the names of the most populous
+     * countries that have a name, alternative spelling, translation or native name starting with the given prefix. It
+     * is meant to be called on every keystroke and is answered from an index, without calling the restcountries API.
+     *
+     * @param prefix The prefix typed so far
+     * @return The suggested country names, most populous first; an empty list if nothing matches
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<String>> getAutocompleteSuggestions(@RequestParam String prefix) {
+        return ResponseEntity.ok(countryService.getAutocompleteSuggestions(prefix));
+    }
+
+    /**
+     * This method handles GET requests to /countries/aggregate and groups all countries by a field, applying an
+     * aggregate function to a metric per group. For instance,
+     * /countries/aggregate?groupBy=region&function=sum&metric=population returns the total population per region, and
+     * /countries/aggregate?groupBy=currency&function=count returns the number of countries using each currency. The
+     * optional region, subregion and continent parameters restrict the countries taken into account, e.g.
+     * &region=Europe.
+     *
+     * @param groupBy The field to group by: region, subregion, continent, currency or language
+     * @param function The aggregate function: count (default), sum, avg, min or max
+     * @param metric The metric to aggregate: population, area or gini; not needed for count
+     * @param region Only include countries of this region
+     * @param subregion Only include countries of this subregion
+     * @param continent Only include countries on this continent
+     * @return The aggregated value per group
+     */
+    @GetMapping("/aggregate")
+    public ResponseEntity<Map<String, Double>> aggregate(
+            @RequestParam String groupBy,
+            @RequestParam(defaultValue = "count") String function,
+            @RequestParam(required = false) String metric,
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) String subregion,
+            @RequestParam(required = false) String continent
+    ) {
+        GroupBy parsedGroupBy = GroupBy.fromParameter(groupBy);
+        AggregateFunction parsedFunction = AggregateFunction.fromParameter(function);
+        Metric parsedMetric = Metric.fromParameter(metric);
+        if (parsedGroupBy == null || parsedFunction == null
+                || (parsedMetric == null && parsedFunction != AggregateFunction.COUNT)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Map<GroupBy, String> restrictions = new EnumMap<>(GroupBy.class);
+        if (region != null) {
+            restrictions.put(GroupBy.REGION, region);
+        }
+        if (subregion != null) {
+            restrictions.put(GroupBy.SUBREGION, subregion);
+        }
+        if (continent != null) {
+            restrictions.put(GroupBy.CONTINENT, continent);
+        }
+        return ResponseEntity.ok(aggregationService.aggregate(parsedGroupBy, parsedFunction, parsedMetric,
+                restrictions));
+    }
+
+    /**
+     * This method handles GET requests to /countries/changes?since=&epoch= and returns the countries that were added,
+     * updated or removed since the given data set version. Callers poll it with the version and epoch of the previous
+     * response; if "complete" is false, the requested version is too old or was counted by another instance, and
+     * everything cached has to be invalidated.
+     *
+     * @param since The last data set version the caller has seen, 0 on the first call
+     * @param epoch The epoch of the previous response, absent on the first call
+     * @return The current version and the changes after the given version
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeFeed> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                 @RequestParam(required = false) String epoch) {
+        return ResponseEntity.ok(countryService.getChanges(since, epoch));
+    }
+
+    /**
+     * This method handles POST requests to /countries/batch and resolves many country names or codes in one request.
+     * The body looks like {"queries": ["Ireland", "DE", "FRA"], "fields": ["name.common", "flag"]}; "fields" is
+     * optional and selects the Country fields returned for each match. The response contains one result per query,
+     * in the same order, with status FOUND, NOT_FOUND or ERROR. Like GET /countries/{countryname}, the response is
+     * JSON, CBOR or Smile depending on the Accept header.
+     *
+     * @param request The queries and the optional field selection
+     * @return The result of each query
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<MappingJacksonValue> batchLookup(@RequestBody BatchRequest request) {
+        if (request.queries() == null || request.queries().isEmpty()
+                || request.queries().size() > properties.getBatch().getMaxQueries()) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<String> fields = request.fields();
+        BatchResponse response = batchService.lookup(request.queries(),
+                fields == null ? null : FieldProjection.upstreamFields(fields));
+        return ResponseEntity.ok(project(response, fields));
     }
 
     /**
      * This method handles GET requests to /countries/{countryname} and returns the country information for the given
-     * country name.
+     * country name. The optional fields parameter selects the Country fields to return, e.g.
+     * /countries/Ireland?fields=name.common,flag,capital. Only the corresponding top-level fields are fetched from
+     * the restcountries API, and the unselected ones are skipped when writing the response. The response is JSON by
+     * default, or CBOR (application/cbor) or Smile (application/x-jackson-smile) if the Accept header asks for it.
      *
      * @param countryname The name of the country
+     * @param fields The paths of the fields to return; all fields if not given
      * @return The country information
      */
     @GetMapping("/{countryname}")
-    public ResponseEntity<Country> getCountryInfo(@PathVariable String countryname) {
+    public ResponseEntity<MappingJacksonValue> getCountryInfo(
+            @PathVariable String countryname,
+            @RequestParam(required = false) List<String> fields
+    ) {
         if(countryname.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
 
-        Country country = countryService.getCountryInfo(countryname);
+        Country country = fields == null
+                ? countryService.getCountryInfo(countryname)
+                : countryService.getCountryInfo(countryname, FieldProjection.upstreamFields(fields));
         if (country == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(country);
+        return ResponseEntity.ok(project(country, fields));
     }
 
     /**
@@ -73,6 +242,166 @@ public class CountryController {
         return ResponseEntity.ok(String.join(", ", countryMap));
     }
 
+    /**
+     * This method handles GET requests to /countries/{countryname}/images/{image} and returns a flag or coat of arms
+     * image of the given country (flag.png, flag.svg, coat-of-arms.png or coat-of-arms.svg) from the local image
+     * cache, so that clients don't depend on the third-party hosts the images are published on. The URL names the
+     * country, not the image, whose URL in the data set may change with every refresh; so clients may cache an image
+     * for countryinfo.images.max-age-seconds only, and revalidate it with its ETag afterwards.
+     *
+     * @param countryname The name or code of the country
+     * @param image The file name of the image
+     * @return The image; 502 Bad Gateway if it could not be downloaded
+     */
+    @GetMapping("/{countryname}/images/{image}")
+    public ResponseEntity<StreamingResponseBody> getCountryImage(@PathVariable String countryname,
+                                                                 @PathVariable String image, WebRequest request) {
+        CountryImage countryImage = CountryImage.fromFileName(image);
+        if (countryImage == null) {
+            return ResponseEntity.notFound().build();
+        }
+        CachedImage cached;
+        try {
+            cached = imageService.getImage(countryname, countryImage);
+        } catch (RestClientException e) {
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+        }
+        if (cached == null) {
+            return ResponseEntity.notFound().build();
+        }
+        CacheControl cacheControl = CacheControl
+                .maxAge(Duration.ofSeconds(properties.getImages().getMaxAgeSeconds()))
+                .cachePublic();
+        if (request.checkNotModified(cached.etag())) { // also sets the ETag header of the response
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(cached.contentType()))
+                .contentLength(cached.length())
+                .cacheControl(cacheControl)
+                .body(out -> write(cached.content(), out));
+    }
+
+    /**
+     * This method handles GET requests to /countries/business-hours and returns the names of the countries where it
+     * currently is a working day between the given hours, in at least one of their time zones. For instance,
+     * /countries/business-hours?from=9&to=17 returns the countries where it is now between 9:00 and 17:00.
+     *
+     * @param from The hour the business hours start, 0 to 23
+     * @param to The hour the business hours end, after from, up to 24
+     * @return The names of the countries in business hours
+     */
+    @GetMapping("/business-hours")
+    public ResponseEntity<List<String>> getCountriesInBusinessHours(@RequestParam(defaultValue = "9") int from,
+                                                                    @RequestParam(defaultValue = "17") int to) {
+        if (from < 0 || to > 24 || from >= to) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(timezoneService.getCountriesInBusinessHours(from, to));
+    }
+
+    /**
+     * This method handles GET requests to /countries/dial/{number} and returns the country a phone number belongs to,
+     * found by the longest dialling code it starts with: /countries/dial/+353871234567 returns Ireland. Several
+     * countries are returned if they share the dialling code. It is answered without calling the restcountries API.
+     *
+     * @param number A phone number in international format, starting with + or 00
+     * @param fields The paths of the fields to return; all fields if not given
+     * @return The countries with the longest matching dialling code
+     */
+    @GetMapping("/dial/{number}")
+    public ResponseEntity<MappingJacksonValue> getCountriesByDialingCode(
+            @PathVariable String number,
+            @RequestParam(required = false) List<String> fields
+    ) {
+        if (number.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Country> countries = countryService.getCountriesByDialingCode(number);
+        if (countries.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(project(countries, fields));
+    }
+
+    /**
+     * This method handles GET requests to /countries/tld/{tld} and returns the countries using a top-level domain,
+     * given with or without the leading dot or as a full domain name: /countries/tld/ie and /countries/tld/www.tcd.ie
+     * both return Ireland. It is answered without calling the restcountries API.
+     *
+     * @param tld A top-level domain or a domain name
+     * @param fields The paths of the fields to return; all fields if not given
+     * @return The countries using the top-level domain
+     */
+    @GetMapping("/tld/{tld}")
+    public ResponseEntity<MappingJacksonValue> getCountriesByTld(
+            @PathVariable String tld,
+            @RequestParam(required = false) List<String> fields
+    ) {
+        if (tld.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Country> countries = countryService.getCountriesByTld(tld);
+        if (countries.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(project(countries, fields));
+    }
+
+    /**
+     * This method handles GET requests to /countries/{countryname}/timezone-peers and returns the names of the
+     * countries that share at least one UTC offset with the given country.
+     *
+     * @param countryname The name or code of the country
+     * @return The names of the countries with a common UTC offset
+     */
+    @GetMapping("/{countryname}/timezone-peers")
+    public ResponseEntity<List<String>> getTimezonePeers(@PathVariable String countryname) {
+        List<String> peers = timezoneService.getTimezonePeers(countryname);
+        if (peers == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(peers);
+    }
+
+    /**
+     * This method handles GET requests to /countries/{countryname}/local-time and returns the current local time in
+     * each time zone of the given country.
+     *
+     * @param countryname The name or code of the country
+     * @return The local time per time zone
+     */
+    @GetMapping("/{countryname}/local-time")
+    public ResponseEntity<List<CountryLocalTime>> getLocalTimes(@PathVariable String countryname) {
+        List<CountryLocalTime> localTimes = timezoneService.getLocalTimes(countryname);
+        if (localTimes == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(localTimes);
+    }
+
+    /**
+     * This method handles GET requests to /countries/{countryname}/similar and returns the countries most similar to
+     * the given one, e.g. for "countries like Ireland": sharing languages, currencies, a border, the region or the
+     * subregion, in nearby time zones and of a similar size. It is answered from a table precomputed for the data set.
+     *
+     * @param countryname The name or code of the country
+     * @param limit The number of countries to return, at most countryinfo.similarity.top-k
+     * @return The most similar countries with their similarity score, most similar first
+     */
+    @GetMapping("/{countryname}/similar")
+    public ResponseEntity<List<SimilarCountry>> getSimilarCountries(@PathVariable String countryname,
+                                                                    @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<SimilarCountry> similar = countryService.getSimilarCountries(countryname, limit);
+        if (similar == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(similar);
+    }
+
     /**
      * This method handles GET requests to /countries/{countryname}/continents and returns the continent(s) that the given country is in.
      *
@@ -123,6 +452,59 @@ public class CountryController {
          return ResponseEntity.ok(String.join(", ", countriesWithPopulation));
     }
 
+    /**
+     * This method handles GET requests to /countries/{substring}/mostPopulous/stream and streams the countries that
+     * contain the given substring in descending order of population, one JSON document per line (NDJSON). Each
+     * country is written as soon as it is found, so the first bytes go out before the whole result is known. An
+     * empty body means that no country matched. With "Accept: text/event-stream" the countries are sent as
+     * server-sent events instead, one event per country.
+     *
+     * @param substring The substring to search for
+     * @param accept The Accept header of the request
+     * @return The matching countries as NDJSON or server-sent events
+     */
+    @GetMapping("/{substring}/mostPopulous/stream")
+    public ResponseEntity<StreamingResponseBody> streamMostPopulousCountries(
+            @PathVariable String substring,
+            @RequestHeader(value = "Accept", required = false) String accept
+    ) {
+        return stream(accept, () -> countryService.streamMostPopulousCountries(substring));
+    }
+
+    /**
+     * This method handles GET requests to /countries/export and streams all countries, one JSON document per line
+     * (NDJSON), or as server-sent events with "Accept: text/event-stream". Memory use stays flat regardless of the
+     * number of countries, as each country is written from its cached JSON without building the whole response
+     * first.
+     *
+     * The NDJSON export only changes with the data set, so when the client accepts a precompressed coding (see
+     * countryinfo.compression.precompressed-encodings) it is compressed once per data set version and then sent from
+     * memory.
+     *
+     * @param accept The Accept header of the request
+     * @param acceptEncoding The Accept-Encoding header of the request
+     * @return All countries as NDJSON or server-sent events
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCountries(
+            @RequestHeader(value = "Accept", required = false) String accept,
+            @RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding
+    ) {
+        ContentEncoder encoder = precompressedBodies.negotiate(acceptEncoding);
+        if (encoder == null || isEventStream(accept)) {
+            return stream(accept, countryService::streamAllCountries);
+        }
+        CountrySnapshot snapshot = countryService.getSnapshot(); // the body must be of the version it is cached for
+        byte[] body = precompressedBodies.get("export", snapshot.getVersion(), encoder,
+                () -> ndjsonBytes(snapshot.getRecords().stream()));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_ENCODING, encoder.getName())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentLength(body.length)
+                .body(out -> out.write(body));
+    }
+
     /**
      * This method handles GET requests to /countries/{countryname}/translation/{language} and returns the translation
      * of the country name into the specified language.
@@ -142,4 +524,106 @@ public class CountryController {
         }
         return ResponseEntity.ok(translation);
     }
+
+    /**
+     * Answers requests that need the restcountries API while the upstream concurrency limit is reached with 503
+     * Service Unavailable, so that the client backs off instead of the request waiting for a free slot.
+     *
+     * @return An empty response asking the client to retry in a second
+     */
+    @ExceptionHandler(ConcurrencyLimitExceededException.class)
+    public ResponseEntity<Void> handleUpstreamOverload() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    private static ResponseEntity<StreamingResponseBody> stream(String accept,
+                                                                Supplier<Stream<CountryRecord>> records) {
+        if (isEventStream(accept)) {
+            return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(serverSentEvents(records));
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(ndjson(records));
+    }
+
+    /**
+     * Writes a buffer from the image cache. Tomcat's output stream takes the buffer itself, and writes the parts that
+     * don't fit into its own buffer straight to the connection. Any other stream gets it through a channel, which
+     * copies it into a byte array chunk by chunk.
+     */
+    private static void write(ByteBuffer content, OutputStream out) throws IOException {
+        if (out instanceof CoyoteOutputStream tomcat) {
+            tomcat.write(content);
+            return;
+        }
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (content.hasRemaining()) {
+            channel.write(content);
+        }
+    }
+
+    private static boolean isEventStream(String accept) {
+        return accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    /**
+     * Writes every record as a line of JSON. The first line is flushed right away to keep the time to first byte low;
+     * after that the server's output buffer decides when to send.
+     */
+    private static StreamingResponseBody ndjson(Supplier<Stream<CountryRecord>> records) {
+        return out -> {
+            try (Stream<CountryRecord> stream = records.get()) {
+                Iterator<CountryRecord> iterator = stream.iterator();
+                boolean first = true;
+                while (iterator.hasNext()) {
+                    out.write(iterator.next().getJson());
+                    out.write(NEWLINE);
+                    if (first) {
+                        out.flush();
+                        first = false;
+                    }
+                }
+            }
+        };
+    }
+
+    private static byte[] ndjsonBytes(Stream<CountryRecord> records) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (records) {
+            records.forEach(record -> {
+                out.writeBytes(record.getJson());
+                out.writeBytes(NEWLINE);
+            });
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes every record as a server-sent event with the JSON as data. Events are flushed one by one, as clients of
+     * event streams expect to receive each event when it is produced.
+     */
+    private static StreamingResponseBody serverSentEvents(Supplier<Stream<CountryRecord>> records) {
+        return out -> {
+            try (Stream<CountryRecord> stream = records.get()) {
+                Iterator<CountryRecord> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    writeEvent(out, iterator.next().getJson());
+                }
+            }
+        };
+    }
+
+    private static void writeEvent(OutputStream out, byte[] json) throws IOException {
+        out.write(SSE_DATA);
+        out.write(json); // serialized JSON never contains raw line breaks
+        out.write(SSE_END_OF_EVENT);
+        out.flush();
+    }
+
+    /**
+     * Wraps a response body so that only the given Country fields are written, whichever format is negotiated.
+     */
+    private static MappingJacksonValue project(Object body, List<String> fields) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(FieldProjection.filtersFor(fields));
+        return value;
+    }
 }
@@ -0,0 +1,113 @@
+package ie.tcd.scss.countryinfo.crac;
+
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import ie.tcd.scss.countryinfo.service.CountryDataset;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.connector.Connector;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.util.TimeValue;
+import org.crac.CheckpointException;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.crac.RestoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lets the application be checkpointed and restored with a CRaC JDK (https://openjdk.org/projects/crac/), so that
+ * a restored instance serves requests within milliseconds with the data set and its indexes already loaded and the
+ * hot paths already compiled.
+ *
+ * A checkpoint must not contain open sockets. Before it, the Tomcat connectors are stopped, which closes their server
+ * sockets, and the idle connections to the restcountries API are closed; after the restore the connectors are
+ * started again and the connection pool opens new connections as needed.
+ *
+ * With countryinfo.crac.checkpoint-on-ready=true and -XX:CRaCCheckpointTo=dir the application takes the checkpoint
+ * itself once it is ready, i.e. after the warm-up, and exits; java -XX:CRaCRestoreFrom=dir restores it. A checkpoint
+ * can also be taken at any time with jcmd &lt;pid&gt; JDK.checkpoint. On other JDKs this class does nothing.
+ */
+@Component
+public class CheckpointRestoreSupport implements Resource {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckpointRestoreSupport.class);
+
+    private final ApplicationContext applicationContext;
+    private final PoolingHttpClientConnectionManager upstreamConnectionManager;
+    private final CountryDataset dataset;
+    private final CountryInfoProperties properties;
+
+    public CheckpointRestoreSupport(ApplicationContext applicationContext,
+                                    PoolingHttpClientConnectionManager upstreamConnectionManager,
+                                    CountryDataset dataset, CountryInfoProperties properties) {
+        this.applicationContext = applicationContext;
+        this.upstreamConnectionManager = upstreamConnectionManager;
+        this.dataset = dataset;
+        this.properties = properties;
+        Core.getGlobalContext().register(this); // held weakly, the application context keeps this bean alive
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkpointWhenReady() {
+        if (!properties.getCrac().isCheckpointOnReady()) {
+            return;
+        }
+        try {
+            log.info("Taking a checkpoint of the warmed-up application");
+            Core.checkpointRestore();
+        } catch (CheckpointException | RestoreException | UnsupportedOperationException e) {
+            log.warn("Checkpoint/restore failed, continuing without", e);
+        }
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) throws LifecycleException {
+        for (Connector connector : connectors()) {
+            connector.setPort(connector.getLocalPort()); // come back on the same port, even if it was picked at random
+            connector.stop();
+        }
+        upstreamConnectionManager.closeIdle(TimeValue.ZERO_MILLISECONDS);
+        log.info("Ready for checkpoint: connectors stopped, upstream connections closed");
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) throws LifecycleException {
+        for (Connector connector : connectors()) {
+            connector.start();
+        }
+        log.info("Restored with data set version {}", dataset.getSnapshot().getVersion());
+    }
+
+    private Connector[] connectors() {
+        if (applicationContext instanceof WebServerApplicationContext webContext) {
+            WebServer webServer = webContext.getWebServer();
+            if (webServer instanceof TomcatWebServer tomcat) {
+                return tomcat.getTomcat().getService().findConnectors();
+            }
+        }
+        return new Connector[0];
+    }
+
+    /**
+     * Binds the server sockets when the connectors start rather than when they are created, so that stopping a
+     * connector closes its socket and starting it opens a new one. A bean of its own, because web server customizers
+     * are created before the rest of the application.
+     */
+    @Component
+    static class RebindingConnectorCustomizer implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+        @Override
+        public void customize(TomcatServletWebServerFactory factory) {
+            factory.addConnectorCustomizers(connector -> connector.setProperty("bindOnInit", "false"));
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package ie.tcd.scss.countryinfo.domain;
 
+import ie.tcd.scss.countryinfo.intern.StringPool;
+
 import java.util.List;
 
 public class Car {
@@ -19,6 +21,6 @@ public class Car {
     }
 
     public void setSide(String side) {
-        this.side = side;
+        this.side = StringPool.intern(side);
     }
 }
@@ -1,5 +1,7 @@
 package ie.tcd.scss.countryinfo.domain;
 
+import ie.tcd.scss.countryinfo.intern.StringPool;
+
 import java.util.List;
 import java.util.*;
 
@@ -106,7 +108,7 @@ public class Country {
     }
 
     public void setStatus(String status) {
-        this.status = status;
+        this.status = StringPool.intern(status);
     }
 
     public Boolean getUnMember() {
@@ -122,7 +124,7 @@ public class Country {
     }
 
     public void setCurrencies(Map<String, Currency> currencies) {
-        this.currencies = currencies;
+        this.currencies = StringPool.compact(currencies);
     }
 
     public IDD getIdd() {
@@ -154,7 +156,7 @@ public class Country {
     }
 
     public void setRegion(String region) {
-        this.region = region;
+        this.region = StringPool.intern(region);
     }
 
     public String getSubregion() {
@@ -162,7 +164,7 @@ public class Country {
     }
 
     public void setSubregion(String subregion) {
-        this.subregion = subregion;
+        this.subregion = StringPool.intern(subregion);
     }
 
     public Map<String, String> getLanguages() {
@@ -170,7 +172,7 @@ public class Country {
     }
 
     public void setLanguages(Map<String, String> languages) {
-        this.languages = languages;
+        this.languages = StringPool.compactStrings(languages);
     }
 
     public Map<String, Translation> getTranslations() {
@@ -178,7 +180,7 @@ public class Country {
     }
 
     public void setTranslations(Map<String, Translation> translations) {
-        this.translations = translations;
+        this.translations = StringPool.compactByLanguage(translations);
     }
 
     public List<Double> getLatlng() {
@@ -202,7 +204,7 @@ public class Country {
     }
 
     public void setBorders(List<String> borders) {
-        this.borders = borders;
+        this.borders = StringPool.internAll(borders);
     }
 
     public Integer getArea() {
@@ -218,7 +220,7 @@ public class Country {
     }
 
     public void setDemonyms(Map<String, Demonym> demonyms) {
-        this.demonyms = demonyms;
+        this.demonyms = StringPool.compact(demonyms);
     }
 
     public String getFlag() {
@@ -245,6 +247,11 @@ public class Country {
         this.population = population;
     }
 
+    // getPopulation() unboxes, so check this first for countries without a population figure
+    public boolean hasPopulation() {
+        return population != null;
+    }
+
     public Gini getGini() {
         return gini;
     }
@@ -274,7 +281,7 @@ public class Country {
     }
 
     public void setTimezones(List<String> timezones) {
-        this.timezones = timezones;
+        this.timezones = StringPool.internAll(timezones);
     }
 
     public List<String> getContinents() {
@@ -282,7 +289,7 @@ public class Country {
     }
 
     public void setContinents(List<String> continents) {
-        this.continents = continents;
+        this.continents = StringPool.internAll(continents);
     }
 
     public Flags getFlags() {
@@ -306,7 +313,7 @@ public class Country {
     }
 
     public void setStartOfWeek(String startOfWeek) {
-        this.startOfWeek = startOfWeek;
+        this.startOfWeek = StringPool.intern(startOfWeek);
     }
 
     public CapitalInfo getCapitalInfo() {
@@ -1,5 +1,7 @@
 package ie.tcd.scss.countryinfo.domain;
 
+import ie.tcd.scss.countryinfo.intern.StringPool;
+
 public class Currency {
     private String name;
     private String symbol;
@@ -9,7 +11,7 @@ public class Currency {
     }
 
     public void setName(String name) {
-        this.name = name;
+        this.name = StringPool.intern(name);
     }
 
     public String getSymbol() {
@@ -17,6 +19,6 @@ public class Currency {
     }
 
     public void setSymbol(String symbol) {
-        this.symbol = symbol;
+        this.symbol = StringPool.intern(symbol);
     }
 }
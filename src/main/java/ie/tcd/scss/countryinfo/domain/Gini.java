@@ -1,10 +1,41 @@
 package ie.tcd.scss.countryinfo.domain;
 
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import ie.tcd.scss.countryinfo.intern.StringPool;
+
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
  * Gini, https://en.wikipedia.org/wiki/Gini_coefficient
  *
- * Handling of different years is not implemented.
+ * The API returns the coefficient keyed by the year it was measured in, e.g. "gini": {"2018": 31.4}. All years are
+ * kept in valuesByYear().
  */
 public class Gini {
-    public Double _2017;
+    private final Map<String, Double> valuesByYear = new TreeMap<>();
+
+    @JsonAnySetter
+    public void setValue(String year, Double value) {
+        valuesByYear.put(StringPool.intern(year), value);
+    }
+
+    @JsonAnyGetter
+    public Map<String, Double> valuesByYear() {
+        return valuesByYear;
+    }
+
+    /**
+     * @return The coefficient of the most recent year, or null if there is none
+     */
+    public Double latestValue() {
+        Double latest = null;
+        for (Double value : valuesByYear.values()) { // sorted by year
+            if (value != null) {
+                latest = value;
+            }
+        }
+        return latest;
+    }
 }
@@ -1,5 +1,7 @@
 package ie.tcd.scss.countryinfo.domain;
 
+import ie.tcd.scss.countryinfo.intern.StringPool;
+
 import java.util.List;
 
 /**
@@ -17,7 +19,7 @@ public class IDD {
     }
 
     public void setRoot(String root) {
-        this.root = root;
+        this.root = StringPool.intern(root);
     }
 
     public List<String> getSuffixes() {
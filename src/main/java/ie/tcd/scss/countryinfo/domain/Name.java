@@ -1,5 +1,7 @@
 package ie.tcd.scss.countryinfo.domain;
 
+import ie.tcd.scss.countryinfo.intern.StringPool;
+
 import java.util.Map;
 
 public class Name {
@@ -24,11 +26,14 @@ public class Name {
         this.official = official;
     }
 
+    /**
+     * @return The native names keyed by ISO 639-3 language code, e.g. "gle" for Ireland's Irish name
+     */
     public Map<String, NativeName> getNativeName() {
         return nativeName;
     }
 
     public void setNativeName(Map<String, NativeName> nativeName) {
-        this.nativeName = nativeName;
+        this.nativeName = StringPool.compactByLanguage(nativeName);
     }
 }
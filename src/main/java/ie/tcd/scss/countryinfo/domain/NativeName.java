@@ -1,27 +1,26 @@
 package ie.tcd.scss.countryinfo.domain;
 
-import java.util.Map;
-
+/**
+ * The name of a country in one of its own languages, e.g. "Éire" in Irish. Native names are keyed by language code,
+ * see Name.getNativeName().
+ */
 public class NativeName {
+    private String official;
+    private String common;
 
-    private Map<String, Language> eng;
-    private Map<String, Language> gle;
-
-    public Map<String, Language> getEng() {
-        return eng;
+    public String getOfficial() {
+        return official;
     }
 
-    public void setEng(Map<String, Language> eng) {
-        this.eng = eng;
+    public void setOfficial(String official) {
+        this.official = official;
     }
 
-    public Map<String, Language> getGle() {
-        return gle;
+    public String getCommon() {
+        return common;
     }
 
-    public void setGle(Map<String, Language> gle) {
-        this.gle = gle;
+    public void setCommon(String common) {
+        this.common = common;
     }
-
-    // Add more languages as needed
 }
@@ -0,0 +1,60 @@
+package ie.tcd.scss.countryinfo.image;
+
+import ie.tcd.scss.countryinfo.domain.CoatOfArms;
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.domain.Flags;
+
+import java.util.function.Function;
+
+/**
+ * The images of a country that can be served through the image proxy, named like the file they are served as, e.g.
+ * /countries/IRL/images/flag.svg.
+ */
+public enum CountryImage {
+
+    FLAG_PNG("flag.png", "image/png", country -> country.getFlags() != null ? country.getFlags().getPng() : null),
+    FLAG_SVG("flag.svg", "image/svg+xml", country -> country.getFlags() != null ? country.getFlags().getSvg() : null),
+    COAT_OF_ARMS_PNG("coat-of-arms.png", "image/png",
+            country -> country.getCoatOfArms() != null ? country.getCoatOfArms().getPng() : null),
+    COAT_OF_ARMS_SVG("coat-of-arms.svg", "image/svg+xml",
+            country -> country.getCoatOfArms() != null ? country.getCoatOfArms().getSvg() : null);
+
+    private final String fileName;
+    private final String contentType;
+    private final Function<Country, String> url;
+
+    CountryImage(String fileName, String contentType, Function<Country, String> url) {
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.url = url;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return The URL of this image of the country in {@link Flags} or {@link CoatOfArms}, or null if it has none
+     */
+    public String urlOf(Country country) {
+        String value = url.apply(country);
+        return value != null && !value.isEmpty() ? value : null;
+    }
+
+    /**
+     * @param fileName A file name, e.g. "flag.png"
+     * @return The image with that file name, or null if there is none
+     */
+    public static CountryImage fromFileName(String fileName) {
+        for (CountryImage image : values()) {
+            if (image.fileName.equalsIgnoreCase(fileName)) {
+                return image;
+            }
+        }
+        return null;
+    }
+}
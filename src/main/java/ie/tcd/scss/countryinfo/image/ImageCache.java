@@ -0,0 +1,99 @@
+package ie.tcd.scss.countryinfo.image;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded cache of images, keyed by the URL they were downloaded from. The bytes are kept in direct (off-heap)
+ * buffers, so that a large cache neither adds to the heap the garbage collector has to scan nor is copied around by
+ * it. When the cache is full, the least recently used images are evicted; their buffers are released once the last
+ * response writing them is done.
+ */
+public final class ImageCache {
+
+    private final long maxBytes;
+    private final Map<String, CachedImage> images = new LinkedHashMap<>(256, 0.75f, true); // least recently used first
+    private long bytes;
+
+    /**
+     * @param maxBytes The total size of the images the cache may hold
+     */
+    public ImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param url The URL the image was downloaded from
+     * @return The cached image, or null if it is not in the cache
+     */
+    public synchronized CachedImage get(String url) {
+        return images.get(url);
+    }
+
+    /**
+     * Copies an image into the cache, evicting the least recently used images if there is not enough space. Images
+     * larger than the whole cache are not cached.
+     *
+     * @param url The URL the image was downloaded from
+     * @param contentType The media type of the image
+     * @param content The image
+     * @param etag The entity tag of the image, without quotes
+     * @return The image, backed by the cached copy if it was cached
+     */
+    public CachedImage put(String url, String contentType, byte[] content, String etag) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.length); // allocated outside the lock, it zeroes memory
+        buffer.put(content).flip();
+        CachedImage image = new CachedImage(buffer.asReadOnlyBuffer(), contentType, etag);
+        if (content.length > maxBytes) {
+            return image;
+        }
+        synchronized (this) {
+            CachedImage replaced = images.put(url, image);
+            bytes += content.length - (replaced != null ? replaced.length() : 0);
+            Iterator<CachedImage> leastRecentlyUsed = images.values().iterator();
+            while (bytes > maxBytes) {
+                bytes -= leastRecentlyUsed.next().length();
+                leastRecentlyUsed.remove();
+            }
+        }
+        return image;
+    }
+
+    /**
+     * @return The number of cached images
+     */
+    public synchronized int size() {
+        return images.size();
+    }
+
+    /**
+     * @return The total size of the cached images
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * An image held by the cache.
+     *
+     * @param content The image; read-only and shared, use {@link #content()} to read it
+     * @param contentType The media type of the image, e.g. "image/png"
+     * @param etag The entity tag of the image, without quotes
+     */
+    public record CachedImage(ByteBuffer content, String contentType, String etag) {
+
+        /**
+         * @return A view of the image with its own position, so that concurrent responses can write it
+         */
+        @Override
+        public ByteBuffer content() {
+            return content.duplicate();
+        }
+
+        public int length() {
+            return content.capacity();
+        }
+    }
+}
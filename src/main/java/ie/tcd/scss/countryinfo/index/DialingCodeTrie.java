@@ -0,0 +1,153 @@
+package ie.tcd.scss.countryinfo.index;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.domain.IDD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable digit trie over the international dialling codes of a list of countries (IDD root plus each suffix, e.g.
+ * "+3" + "53" for Ireland), for finding the country of a phone number by its longest matching prefix. Countries are
+ * identified by their position in the list the trie was built from.
+ *
+ * The nodes are stored in a flat array with ten slots per node, one per digit, so a lookup is one array read per
+ * digit of the number.
+ */
+public final class DialingCodeTrie {
+
+    private static final int[] NONE = new int[0];
+
+    private final int[] children;       // [node * 10 + digit] -> child node, 0 if none (the root is no child)
+    private final int[][] countries;    // [node] -> the countries whose dialling code ends at the node
+
+    private DialingCodeTrie(int[] children, int[][] countries) {
+        this.children = children;
+        this.countries = countries;
+    }
+
+    /**
+     * A dialling code matching the start of a phone number.
+     *
+     * @param code The dialling code, e.g. "+353"
+     * @param countries The positions of the countries with this dialling code, usually one
+     */
+    public record Match(String code, int[] countries) {
+    }
+
+    public static DialingCodeTrie of(List<Country> countries) {
+        List<int[]> children = new ArrayList<>();
+        List<int[]> countriesByNode = new ArrayList<>();
+        children.add(new int[10]);
+        countriesByNode.add(NONE);
+        for (int c = 0; c < countries.size(); c++) {
+            for (String code : dialingCodes(countries.get(c).getIdd())) {
+                int node = 0;
+                for (int i = 0; i < code.length(); i++) {
+                    int digit = code.charAt(i) - '0';
+                    if (children.get(node)[digit] == 0) {
+                        children.get(node)[digit] = children.size();
+                        children.add(new int[10]);
+                        countriesByNode.add(NONE);
+                    }
+                    node = children.get(node)[digit];
+                }
+                int[] atNode = countriesByNode.get(node);
+                if (atNode.length == 0 || atNode[atNode.length - 1] != c) { // a country may list a code twice
+                    atNode = Arrays.copyOf(atNode, atNode.length + 1);
+                    atNode[atNode.length - 1] = c;
+                    countriesByNode.set(node, atNode);
+                }
+            }
+        }
+
+        int[] flat = new int[children.size() * 10];
+        for (int node = 0; node < children.size(); node++) {
+            System.arraycopy(children.get(node), 0, flat, node * 10, 10);
+        }
+        return new DialingCodeTrie(flat, countriesByNode.toArray(new int[0][]));
+    }
+
+    /**
+     * Finds the longest dialling code the given phone number starts with. The number may start with "+" or the
+     * international call prefix "00", and may contain spaces, dashes, dots and parentheses, e.g. "+353 (1) 555-0100".
+     *
+     * @param number A phone number in international format
+     * @return The longest matching dialling code, or null if there is none or the number contains other characters
+     */
+    public Match longestMatch(CharSequence number) {
+        int start = 0;
+        while (start < number.length() && number.charAt(start) == ' ') {
+            start++;
+        }
+        if (start < number.length() && number.charAt(start) == '+') {
+            start++;
+        } else if (number.length() - start >= 2 && number.charAt(start) == '0' && number.charAt(start + 1) == '0') {
+            start += 2;
+        }
+
+        int node = 0;
+        int matchNode = -1;
+        int matchLength = 0;
+        int digits = 0;
+        for (int i = start; i < number.length(); i++) {
+            char ch = number.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                digits++;
+                if (node < 0) {
+                    continue; // past the deepest code, only checking the rest of the number
+                }
+                node = children[node * 10 + ch - '0'];
+                if (node == 0) {
+                    node = -1;
+                } else if (countries[node].length > 0) {
+                    matchNode = node;
+                    matchLength = digits;
+                }
+            } else if (ch != ' ' && ch != '-' && ch != '.' && ch != '(' && ch != ')') {
+                return null;
+            }
+        }
+        if (matchNode < 0) {
+            return null;
+        }
+        StringBuilder code = new StringBuilder("+");
+        for (int i = start; code.length() <= matchLength; i++) {
+            char ch = number.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                code.append(ch);
+            }
+        }
+        return new Match(code.toString(), countries[matchNode].clone());
+    }
+
+    /**
+     * @return The number of nodes in the trie, including the root
+     */
+    public int nodeCount() {
+        return countries.length;
+    }
+
+    /**
+     * @return The full dialling codes of a country without the "+", e.g. ["353"]; the root alone if it has no
+     * suffixes; none if it has no valid root
+     */
+    private static List<String> dialingCodes(IDD idd) {
+        if (idd == null || idd.getRoot() == null) {
+            return List.of();
+        }
+        String root = idd.getRoot().startsWith("+") ? idd.getRoot().substring(1) : idd.getRoot();
+        List<String> suffixes = idd.getSuffixes() == null || idd.getSuffixes().isEmpty()
+                ? List.of("")
+                : idd.getSuffixes();
+        List<String> codes = new ArrayList<>();
+        for (String suffix : suffixes) {
+            String code = root + (suffix != null ? suffix : "");
+            if (!code.isEmpty() && code.chars().allMatch(ch -> ch >= '0' && ch <= '9')) {
+                codes.add(code);
+            }
+        }
+        return codes;
+    }
+}
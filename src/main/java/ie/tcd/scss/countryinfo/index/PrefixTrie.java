@@ -0,0 +1,169 @@
+package ie.tcd.scss.countryinfo.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Compact, immutable prefix trie used for autocompletion.
+ *
+ * Every node caches the top-K values found below it, ranked by weight, so a lookup only walks the characters of the
+ * prefix (O(prefix length)) and returns a list that was built once up front. Keys are matched case-insensitively.
+ *
+ * The nodes are stored in flat arrays: the edges of node n are found at positions firstEdge[n] (inclusive) to
+ * firstEdge[n + 1] (exclusive) of edgeLabels/edgeTargets, sorted by label so they can be binary searched.
+ */
+public final class PrefixTrie {
+
+    private final int[] firstEdge;
+    private final char[] edgeLabels;
+    private final int[] edgeTargets;
+    private final List<List<String>> completions;
+
+    private PrefixTrie(int[] firstEdge, char[] edgeLabels, int[] edgeTargets, List<List<String>> completions) {
+        this.firstEdge = firstEdge;
+        this.edgeLabels = edgeLabels;
+        this.edgeTargets = edgeTargets;
+        this.completions = completions;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the highest weighted values with a key starting with the given prefix.
+     *
+     * @param prefix The prefix to complete, matched case-insensitively
+     * @return An unmodifiable list of values in descending order of weight, empty if nothing matches
+     */
+    public List<String> complete(CharSequence prefix) {
+        int node = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = child(node, Character.toLowerCase(prefix.charAt(i)));
+            if (node < 0) {
+                return List.of();
+            }
+        }
+        return completions.get(node);
+    }
+
+    /**
+     * @return The number of nodes in the trie, including the root
+     */
+    public int nodeCount() {
+        return firstEdge.length - 1;
+    }
+
+    private int child(int node, char label) {
+        int index = Arrays.binarySearch(edgeLabels, firstEdge[node], firstEdge[node + 1], label);
+        return index >= 0 ? edgeTargets[index] : -1;
+    }
+
+    /**
+     * Collects (key, value, weight) entries and freezes them into a {@link PrefixTrie}. A value may be added under
+     * several keys (e.g. different spellings of the same country name); it is only listed once per completion, with
+     * the highest weight it was added with.
+     */
+    public static final class Builder {
+
+        private final Node root = new Node();
+
+        private Builder() {
+        }
+
+        public Builder add(String key, String value, long weight) {
+            if (key == null || key.isEmpty() || value == null) {
+                return this;
+            }
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(Character.toLowerCase(key.charAt(i)), c -> new Node());
+            }
+            node.entries.add(new Entry(value, weight));
+            return this;
+        }
+
+        public PrefixTrie build(int maxCompletions) {
+            // number the nodes breadth-first, so that the edges of each node end up next to each other
+            List<Node> nodes = new ArrayList<>();
+            Queue<Node> queue = new ArrayDeque<>();
+            queue.add(root);
+            int edgeCount = 0;
+            while (!queue.isEmpty()) {
+                Node node = queue.remove();
+                node.id = nodes.size();
+                nodes.add(node);
+                edgeCount += node.children.size();
+                queue.addAll(node.children.values());
+            }
+
+            int[] firstEdge = new int[nodes.size() + 1];
+            char[] edgeLabels = new char[edgeCount];
+            int[] edgeTargets = new int[edgeCount];
+            int edge = 0;
+            for (Node node : nodes) {
+                firstEdge[node.id] = edge;
+                for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                    edgeLabels[edge] = child.getKey();
+                    edgeTargets[edge] = child.getValue().id;
+                    edge++;
+                }
+            }
+            firstEdge[nodes.size()] = edge;
+
+            List<List<String>> completions = new ArrayList<>(nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                completions.add(null);
+            }
+            collectTopEntries(root, maxCompletions, completions);
+            return new PrefixTrie(firstEdge, edgeLabels, edgeTargets, completions);
+        }
+
+        /**
+         * Computes the top entries of the given node from its own entries and the top entries of its children, and
+         * records the resulting value list for every node of the subtree.
+         */
+        private static List<Entry> collectTopEntries(Node node, int limit, List<List<String>> completions) {
+            List<Entry> candidates = new ArrayList<>(node.entries);
+            List<String> onlyChildCompletions = null;
+            for (Node child : node.children.values()) {
+                candidates.addAll(collectTopEntries(child, limit, completions));
+                onlyChildCompletions = completions.get(child.id);
+            }
+
+            Map<String, Entry> bestPerValue = new HashMap<>();
+            for (Entry candidate : candidates) {
+                bestPerValue.merge(candidate.value(), candidate,
+                        (a, b) -> a.weight() >= b.weight() ? a : b);
+            }
+            List<Entry> top = bestPerValue.values().stream()
+                    .sorted(Comparator.comparingLong(Entry::weight).reversed().thenComparing(Entry::value))
+                    .limit(limit)
+                    .toList();
+
+            List<String> values = top.stream().map(Entry::value).toList();
+            // long single-child chains mostly share the same completions, so reuse the child's list where possible
+            if (node.children.size() == 1 && values.equals(onlyChildCompletions)) {
+                values = onlyChildCompletions;
+            }
+            completions.set(node.id, values);
+            return top;
+        }
+    }
+
+    private static final class Node {
+        private final TreeMap<Character, Node> children = new TreeMap<>();
+        private final List<Entry> entries = new ArrayList<>(1);
+        private int id;
+    }
+
+    private record Entry(String value, long weight) {
+    }
+}
@@ -0,0 +1,81 @@
+package ie.tcd.scss.countryinfo.index;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable hash index from country code top-level domains (e.g. ".ie") to the countries using them. Countries are
+ * identified by their position in the list the index was built from.
+ */
+public final class TldIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final Map<String, int[]> countriesByTld; // lower case, without the leading dot
+
+    private TldIndex(Map<String, int[]> countriesByTld) {
+        this.countriesByTld = countriesByTld;
+    }
+
+    public static TldIndex of(List<Country> countries) {
+        Map<String, int[]> countriesByTld = new HashMap<>();
+        for (int c = 0; c < countries.size(); c++) {
+            List<String> tlds = countries.get(c).getTld();
+            if (tlds == null) {
+                continue;
+            }
+            for (String tld : tlds) {
+                String key = key(tld, 0, tld != null ? tld.length() : 0);
+                if (key == null) {
+                    continue;
+                }
+                int[] atKey = countriesByTld.getOrDefault(key, NONE);
+                if (atKey.length == 0 || atKey[atKey.length - 1] != c) { // a country may list a domain twice
+                    atKey = Arrays.copyOf(atKey, atKey.length + 1);
+                    atKey[atKey.length - 1] = c;
+                    countriesByTld.put(key, atKey);
+                }
+            }
+        }
+        return new TldIndex(countriesByTld);
+    }
+
+    /**
+     * Finds the countries using the top-level domain of the given domain name. The top-level domain is the part after
+     * the last dot, so "ie", ".ie" and "www.tcd.ie" all find Ireland. A trailing dot (fully qualified name) is ignored.
+     *
+     * @param domain A top-level domain, with or without the leading dot, or a domain name
+     * @return The positions of the countries using the top-level domain, empty if there are none
+     */
+    public int[] lookup(String domain) {
+        int end = domain.endsWith(".") ? domain.length() - 1 : domain.length();
+        String key = key(domain, domain.lastIndexOf('.', end - 1) + 1, end);
+        int[] countries = key != null ? countriesByTld.get(key) : null;
+        return countries != null ? countries.clone() : NONE;
+    }
+
+    /**
+     * @return The number of top-level domains in the index
+     */
+    public int size() {
+        return countriesByTld.size();
+    }
+
+    /**
+     * @return The label between start and end in lower case, without a leading dot; null if it is empty
+     */
+    private static String key(String domain, int start, int end) {
+        if (domain == null) {
+            return null;
+        }
+        if (start < end && domain.charAt(start) == '.') {
+            start++;
+        }
+        return start < end ? domain.substring(start, end).toLowerCase(Locale.ROOT) : null;
+    }
+}
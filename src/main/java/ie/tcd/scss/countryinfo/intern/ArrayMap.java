@@ -0,0 +1,100 @@
+package ie.tcd.scss.countryinfo.intern;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * An immutable map backed by a single array of alternating keys and values, in insertion order. The maps of the
+ * domain model are small (a few to about 25 entries) and only read, so a linear scan is as fast as hashing, while
+ * the map takes a fraction of the memory of a LinkedHashMap, which needs a table and an entry object per mapping.
+ */
+final class ArrayMap<K, V> extends AbstractMap<K, V> {
+
+    private final Object[] keysAndValues;
+
+    private ArrayMap(Object[] keysAndValues) {
+        this.keysAndValues = keysAndValues;
+    }
+
+    /**
+     * @param map The map to copy
+     * @param keyMapper Applied to each key, e.g. to intern it
+     * @param valueMapper Applied to each value
+     * @return An immutable copy of the map, in its iteration order
+     */
+    static <K, V> Map<K, V> copyOf(Map<K, V> map, Function<K, K> keyMapper, Function<V, V> valueMapper) {
+        Object[] keysAndValues = new Object[map.size() * 2];
+        int i = 0;
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            keysAndValues[i++] = keyMapper.apply(entry.getKey());
+            keysAndValues[i++] = valueMapper.apply(entry.getValue());
+        }
+        return new ArrayMap<>(keysAndValues);
+    }
+
+    @Override
+    public int size() {
+        return keysAndValues.length / 2;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i = indexOf(key);
+        return i >= 0 ? (V) keysAndValues[i + 1] : null;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return ArrayMap.this.size();
+            }
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<>() {
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < keysAndValues.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<K, V> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<K, V> entry = new SimpleImmutableEntry<>((K) keysAndValues[i], (V) keysAndValues[i + 1]);
+                        i += 2;
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            Object candidate = keysAndValues[i];
+            if (candidate == key || Objects.equals(candidate, key)) { // pooled keys usually match by identity
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,87 @@
+package ie.tcd.scss.countryinfo.intern;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of the ISO 639-3 language codes that key translations and native names, e.g. "deu" or "gle". Each code
+ * gets a small ordinal the first time it is seen, so that maps keyed by language can store ordinals instead of
+ * strings; see {@link LanguageMap}. The languages restcountries translates every country into are registered up
+ * front, in the order the API returns them.
+ *
+ * Ordinals are never reused or removed. Only codes that actually occur in the data are registered, a few hundred at
+ * most; the dictionary refuses to grow beyond what fits in a short.
+ */
+public final class LanguageCodes {
+
+    static final int MAX_SIZE = Short.MAX_VALUE + 1;
+
+    private static final List<String> TRANSLATION_LANGUAGES = List.of(
+            "ara", "bre", "ces", "cym", "deu", "est", "fin", "fra", "hrv", "hun", "ita", "jpn", "kor", "nld",
+            "per", "pol", "por", "rus", "slk", "spa", "srp", "swe", "tur", "urd", "zho");
+
+    private static final Map<String, Integer> ORDINALS = new ConcurrentHashMap<>();
+    private static volatile String[] codes = new String[0];
+
+    static {
+        TRANSLATION_LANGUAGES.forEach(LanguageCodes::register);
+    }
+
+    private LanguageCodes() {
+    }
+
+    /**
+     * @param code A language code
+     * @return The ordinal of the code, or -1 if it was never registered (or is null)
+     */
+    public static int ordinalOf(String code) {
+        if (code == null) {
+            return -1;
+        }
+        Integer ordinal = ORDINALS.get(code);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * @param ordinal The ordinal of a registered code
+     * @return The code, as a canonical instance
+     */
+    public static String codeOf(int ordinal) {
+        return codes[ordinal];
+    }
+
+    /**
+     * Registers a code, unless it already is.
+     *
+     * @param code A language code
+     * @return The ordinal of the code, or -1 if the dictionary is full
+     */
+    public static int register(String code) {
+        int ordinal = ordinalOf(code);
+        return ordinal >= 0 ? ordinal : add(code);
+    }
+
+    /**
+     * @return The number of registered codes
+     */
+    public static int size() {
+        return codes.length;
+    }
+
+    private static synchronized int add(String code) {
+        Integer ordinal = ORDINALS.get(code); // registered by another thread meanwhile
+        if (ordinal != null) {
+            return ordinal;
+        }
+        if (codes.length >= MAX_SIZE) {
+            return -1;
+        }
+        String[] grown = Arrays.copyOf(codes, codes.length + 1);
+        grown[codes.length] = StringPool.intern(code);
+        codes = grown; // published before the ordinal, so that codeOf never sees a missing code
+        ORDINALS.put(grown[grown.length - 1], grown.length - 1);
+        return grown.length - 1;
+    }
+}
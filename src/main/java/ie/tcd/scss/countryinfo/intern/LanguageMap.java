@@ -0,0 +1,108 @@
+package ie.tcd.scss.countryinfo.intern;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map keyed by language code, for translations and native names. Instead of the codes, it stores their
+ * ordinals in the shared {@link LanguageCodes} dictionary, in a short array next to an array of the values, in
+ * insertion order. So a country's 25 translations take two small arrays, and no key strings or entry objects.
+ */
+final class LanguageMap<V> extends AbstractMap<String, V> {
+
+    private final short[] languages;
+    private final Object[] values;
+
+    private LanguageMap(short[] languages, Object[] values) {
+        this.languages = languages;
+        this.values = values;
+    }
+
+    /**
+     * @param map The map to copy, keyed by language code
+     * @return An immutable copy of the map, in its iteration order; null if a key is null or the dictionary of
+     * language codes is full
+     */
+    static <V> Map<String, V> copyOf(Map<String, V> map) {
+        short[] languages = new short[map.size()];
+        Object[] values = new Object[map.size()];
+        int i = 0;
+        for (Map.Entry<String, V> entry : map.entrySet()) {
+            int ordinal = entry.getKey() != null ? LanguageCodes.register(entry.getKey()) : -1;
+            if (ordinal < 0) {
+                return null;
+            }
+            languages[i] = (short) ordinal;
+            values[i++] = entry.getValue();
+        }
+        return new LanguageMap<>(languages, values);
+    }
+
+    @Override
+    public int size() {
+        return languages.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i = indexOf(key);
+        return i >= 0 ? (V) values[i] : null;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return languages.length;
+            }
+
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new Iterator<>() {
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < languages.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<String, V> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, V> entry =
+                                new SimpleImmutableEntry<>(LanguageCodes.codeOf(languages[i]), (V) values[i]);
+                        i++;
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        int ordinal = key instanceof String code ? LanguageCodes.ordinalOf(code) : -1;
+        if (ordinal < 0) {
+            return -1; // not a language of any country
+        }
+        for (int i = 0; i < languages.length; i++) {
+            if (languages[i] == ordinal) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,113 @@
+package ie.tcd.scss.countryinfo.intern;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one canonical instance of the strings that repeat across countries: language, currency and translation codes
+ * used as map keys, region, subregion and continent names, time zones, country codes in borders, and so on. The
+ * domain classes pass these strings through the pool as they are deserialized, so each snapshot holds one copy of
+ * each value instead of one per country.
+ *
+ * The closed vocabularies (regions, continents, days of the week, ...) are known up front; other values are added
+ * as they come. The pool is bounded, so that unexpected input can't grow it without limit; beyond the bound strings
+ * are simply not shared.
+ */
+public final class StringPool {
+
+    private static final int MAX_SIZE = 100_000;
+
+    private static final List<String> VOCABULARY = List.of(
+            // regions and continents
+            "Africa", "Americas", "Antarctic", "Asia", "Europe", "Oceania",
+            "Antarctica", "North America", "South America",
+            // subregions
+            "Australia and New Zealand", "Caribbean", "Central America", "Central Asia", "Central Europe",
+            "Eastern Africa", "Eastern Asia", "Eastern Europe", "Melanesia", "Micronesia", "Middle Africa",
+            "Northern Africa", "Northern Europe", "Polynesia", "South-Eastern Asia", "Southeast Europe",
+            "Southern Africa", "Southern Asia", "Southern Europe", "Western Africa", "Western Asia", "Western Europe",
+            // startOfWeek, car.side, status
+            "monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday",
+            "left", "right",
+            "officially-assigned", "user-assigned");
+
+    private static final Map<String, String> POOL = new ConcurrentHashMap<>();
+
+    static {
+        VOCABULARY.forEach(value -> POOL.put(value, value));
+    }
+
+    private StringPool() {
+    }
+
+    /**
+     * @param value A string, or null
+     * @return The canonical instance equal to the given string; the string itself if it is new (or null)
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String canonical = POOL.get(value);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (POOL.size() >= MAX_SIZE) {
+            return value;
+        }
+        canonical = POOL.putIfAbsent(value, value);
+        return canonical != null ? canonical : value;
+    }
+
+    /**
+     * @param values A list of strings, or null
+     * @return An immutable list of the canonical instances, sized to fit; null if the list is null
+     */
+    public static List<String> internAll(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        List<String> interned = new ArrayList<>(values.size());
+        for (String value : values) {
+            interned.add(intern(value));
+        }
+        return interned.contains(null) ? interned : List.copyOf(interned); // List.copyOf rejects nulls
+    }
+
+    /**
+     * @param map A map keyed by strings, or null
+     * @return An immutable copy with canonical keys, in the same order; null if the map is null
+     */
+    public static <V> Map<String, V> compact(Map<String, V> map) {
+        return map == null ? null : ArrayMap.copyOf(map, StringPool::intern, value -> value);
+    }
+
+    /**
+     * @param map A map of strings, or null
+     * @return An immutable copy with canonical keys and values, in the same order; null if the map is null
+     */
+    public static Map<String, String> compactStrings(Map<String, String> map) {
+        return map == null ? null : ArrayMap.copyOf(map, StringPool::intern, StringPool::intern);
+    }
+
+    /**
+     * @param map A map keyed by language code, e.g. translations, or null
+     * @return An immutable copy that stores the language codes as ordinals, in the same order; null if the map is null
+     */
+    public static <V> Map<String, V> compactByLanguage(Map<String, V> map) {
+        if (map == null) {
+            return null;
+        }
+        Map<String, V> compact = LanguageMap.copyOf(map);
+        return compact != null ? compact : compact(map); // e.g. too many distinct languages
+    }
+
+    /**
+     * @return The number of strings in the pool
+     */
+    public static int size() {
+        return POOL.size();
+    }
+}
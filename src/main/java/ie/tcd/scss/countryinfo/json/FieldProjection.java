@@ -0,0 +1,192 @@
+package ie.tcd.scss.countryinfo.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import ie.tcd.scss.countryinfo.domain.Country;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Serializes objects containing countries with only a subset of the Country fields (sparse fieldsets).
+ *
+ * Fields are selected by their path relative to the Country, e.g. "name.common", "flag" or "capital". Selecting a
+ * field includes everything below it ("name" includes "name.common" and "name.official"). Unselected fields are
+ * skipped while serializing, so their values are never written; there is no full serialization followed by a
+ * filtering step.
+ *
+ * The filter works for every Jackson based format (JSON, CBOR, Smile): the ObjectMapper of each message converter
+ * uses the DomainFilterIntrospector with ALL_FIELDS as default, and a response selects fields by wrapping its body
+ * in a MappingJacksonValue with the filters returned by filtersFor.
+ */
+public final class FieldProjection {
+
+    private static final String FILTER_ID = "countryFieldProjection";
+
+    private static final Set<String> COUNTRY_FIELDS = Arrays.stream(Country.class.getDeclaredFields())
+            .filter(field -> !Modifier.isStatic(field.getModifiers()))
+            .map(Field::getName)
+            .collect(Collectors.toUnmodifiableSet());
+
+    /**
+     * The filters to configure as default on every ObjectMapper, so that all fields are written unless a response
+     * selects some.
+     */
+    public static final FilterProvider ALL_FIELDS =
+            new SimpleFilterProvider().addFilter(FILTER_ID, SimpleBeanPropertyFilter.serializeAll());
+
+    private FieldProjection() {
+    }
+
+    /**
+     * Returns the filters that only write the given Country fields.
+     *
+     * @param fields The paths of the fields to include; null or empty to include all fields
+     * @return The filters, to be set on a MappingJacksonValue
+     */
+    public static FilterProvider filtersFor(Collection<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return ALL_FIELDS;
+        }
+        return new SimpleFilterProvider().addFilter(FILTER_ID, new PathFilter(fields));
+    }
+
+    /**
+     * Returns the top-level Country fields needed to produce the given paths, e.g. "name" for "name.common", to be
+     * passed to the restcountries API as its "fields" parameter. Paths that don't start with a Country field are
+     * left out, so that they can't make the upstream request fail.
+     *
+     * @param fields The paths of the selected fields
+     * @return The distinct top-level field names, sorted
+     */
+    public static Set<String> upstreamFields(Collection<String> fields) {
+        Set<String> topLevel = new TreeSet<>();
+        for (String field : fields) {
+            String path = field.trim();
+            int dot = path.indexOf('.');
+            String name = dot < 0 ? path : path.substring(0, dot);
+            if (COUNTRY_FIELDS.contains(name)) {
+                topLevel.add(name);
+            }
+        }
+        return topLevel;
+    }
+
+    /**
+     * Attaches the projection filter to all classes of the domain package.
+     */
+    public static class DomainFilterIntrospector extends JacksonAnnotationIntrospector {
+
+        @Override
+        public Object findFilterId(Annotated annotated) {
+            if (annotated instanceof AnnotatedClass
+                    && annotated.getRawType().getPackageName().equals(Country.class.getPackageName())) {
+                return FILTER_ID;
+            }
+            return super.findFilterId(annotated);
+        }
+    }
+
+    /**
+     * Includes a property if its path relative to the enclosing Country is selected, lies below a selected path, or
+     * lies on the way to a selected path.
+     *
+     * The path is tracked by the filter itself rather than read from the generator, as not every format keeps the
+     * names of the enclosing objects (CBOR forgets a field name once its value has started). A filter is created
+     * per response and only used by the thread writing it.
+     */
+    private static class PathFilter extends SimpleBeanPropertyFilter {
+
+        private final Set<String> selected = new HashSet<>();
+        private final Set<String> ancestorsOfSelected = new HashSet<>();
+        private final Deque<Segment> enclosing = new ArrayDeque<>(); // the properties being written, innermost first
+
+        PathFilter(Collection<String> fields) {
+            for (String field : fields) {
+                String path = field.trim();
+                if (path.isEmpty()) {
+                    continue;
+                }
+                selected.add(path);
+                for (int dot = path.indexOf('.'); dot >= 0; dot = path.indexOf('.', dot + 1)) {
+                    ancestorsOfSelected.add(path.substring(0, dot));
+                }
+            }
+        }
+
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator generator, SerializerProvider provider,
+                                     PropertyWriter writer) throws Exception {
+            String path = pathOf(pojo, writer.getName());
+            if (path == null) {
+                writer.serializeAsField(pojo, generator, provider);
+            } else if (include(path)) {
+                Object value = writer instanceof BeanPropertyWriter ? ((BeanPropertyWriter) writer).get(pojo) : null;
+                enclosing.push(new Segment(path, value));
+                try {
+                    writer.serializeAsField(pojo, generator, provider);
+                } finally {
+                    enclosing.pop();
+                }
+            } else if (!generator.canOmitFields()) {
+                writer.serializeAsOmittedField(pojo, generator, provider);
+            }
+        }
+
+        private boolean include(String path) {
+            if (selected.contains(path) || ancestorsOfSelected.contains(path)) {
+                return true;
+            }
+            for (int dot = path.indexOf('.'); dot >= 0; dot = path.indexOf('.', dot + 1)) {
+                if (selected.contains(path.substring(0, dot))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Builds the path of a property of the given object from the property being written around it. For objects
+         * that are values of a map, e.g. a Translation, the map key becomes part of the path ("translations.deu").
+         *
+         * @return The path, or null if the property is not part of a Country
+         */
+        private String pathOf(Object pojo, String propertyName) {
+            if (pojo instanceof Country) {
+                return propertyName;
+            }
+            Segment parent = enclosing.peek();
+            if (parent == null) {
+                return null;
+            }
+            if (parent.value() != pojo && parent.value() instanceof Map<?, ?> map) {
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    if (entry.getValue() == pojo) {
+                        return parent.path() + "." + entry.getKey() + "." + propertyName;
+                    }
+                }
+            }
+            return parent.path() + "." + propertyName;
+        }
+    }
+
+    private record Segment(String path, Object value) {
+    }
+}
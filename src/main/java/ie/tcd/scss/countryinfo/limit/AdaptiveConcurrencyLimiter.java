@@ -0,0 +1,92 @@
+package ie.tcd.scss.countryinfo.limit;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * Limits the number of concurrent calls to the restcountries API, adapting the limit to how the API copes (AIMD,
+ * as in TCP congestion control): every call that succeeds quickly while the limit is in use raises the limit by
+ * 1/limit, i.e. by about one per round trip, and every call that fails, is throttled (429), errs (5xx) or is slower
+ * than the latency threshold cuts it by the backoff ratio.
+ *
+ * A call over the limit fails right away with a ConcurrencyLimitExceededException instead of waiting for a free
+ * slot, so that request threads don't pile up behind a slow API.
+ */
+public class AdaptiveConcurrencyLimiter implements ClientHttpRequestInterceptor {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private double limit;
+    private int inFlight;
+
+    /**
+     * @param initialLimit The limit to start with
+     * @param minLimit The lowest the limit is cut to
+     * @param maxLimit The highest the limit is raised to
+     * @param backoffRatio The factor the limit is multiplied with on overload, e.g. 0.9
+     * @param latencyThresholdNanos Calls slower than this count as overload
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                                      long latencyThresholdNanos) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.limit = initialLimit;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (!tryAcquire()) {
+            throw new ConcurrencyLimitExceededException(getLimit());
+        }
+        long start = System.nanoTime();
+        boolean overloaded = true;
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            HttpStatusCode status = response.getStatusCode();
+            overloaded = status.value() == 429 || status.is5xxServerError();
+            return response;
+        } finally {
+            release(overloaded || System.nanoTime() - start > latencyThresholdNanos);
+        }
+    }
+
+    /**
+     * @return The current limit, rounded down
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    synchronized void release(boolean overloaded) {
+        if (overloaded) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight * 2 >= limit) {
+            // only raise the limit while it is actually used, otherwise it would grow without being tested
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        inFlight--;
+    }
+}
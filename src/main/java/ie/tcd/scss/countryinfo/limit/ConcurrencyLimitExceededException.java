@@ -0,0 +1,14 @@
+package ie.tcd.scss.countryinfo.limit;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown instead of calling the restcountries API when the AdaptiveConcurrencyLimiter is at its limit. It is a
+ * RestClientException, so callers handle it like any other failed upstream call.
+ */
+public class ConcurrencyLimitExceededException extends RestClientException {
+
+    public ConcurrencyLimitExceededException(int limit) {
+        super("Too many concurrent calls to the restcountries API (limit " + limit + ")");
+    }
+}
@@ -0,0 +1,90 @@
+package ie.tcd.scss.countryinfo.limit;
+
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate of requests to /countries/** per client with a token bucket each, so that a single client can't
+ * exhaust the service or get it throttled by the restcountries API. Clients are told apart by their API key
+ * (countryinfo.rate-limit.api-key-header) if it is one of countryinfo.rate-limit.api-keys, or else by their IP
+ * address; behind a proxy, set server.forward-headers-strategy so that the address is the client's. Unknown keys are
+ * ignored, as a client sending a new key with every request would otherwise get a fresh bucket each time and crowd
+ * the others out of the tracked ones. A request over the limit is answered right
+ * away with 429 Too Many Requests and a Retry-After header, rather than queued.
+ *
+ * Requests sent before the application is ready, i.e. by the warm-up, are not limited.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String LIMITED_PATH = "/countries/";
+    private static final String OVERFLOW_KEY = "*"; // shared by new clients while too many are tracked
+
+    private final CountryInfoProperties.RateLimit settings;
+    private final ApplicationAvailability availability;
+    private final Set<String> apiKeys;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public RateLimitFilter(CountryInfoProperties properties, ApplicationAvailability availability) {
+        this.settings = properties.getRateLimit();
+        this.apiKeys = Set.copyOf(settings.getApiKeys());
+        this.availability = availability;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !settings.isEnabled()
+                || !request.getRequestURI().startsWith(LIMITED_PATH)
+                || availability.getReadinessState() != ReadinessState.ACCEPTING_TRAFFIC;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.nanoTime();
+        long waitNanos = bucketFor(clientOf(request), now).tryAcquire(now);
+        if (waitNanos > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String apiKey = request.getHeader(settings.getApiKeyHeader());
+        return apiKey != null && apiKeys.contains(apiKey) ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+    }
+
+    private TokenBucket bucketFor(String client, long now) {
+        TokenBucket bucket = buckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= settings.getMaxClients()) {
+            // clients whose bucket is full haven't sent anything for a while, their buckets can be recreated
+            buckets.values().removeIf(b -> b.isFull(now));
+            if (buckets.size() >= settings.getMaxClients()) {
+                client = OVERFLOW_KEY;
+            }
+        }
+        return buckets.computeIfAbsent(client,
+                c -> new TokenBucket(settings.getBurst(), settings.getRequestsPerSecond(), now));
+    }
+}
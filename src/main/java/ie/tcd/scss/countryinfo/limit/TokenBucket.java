@@ -0,0 +1,56 @@
+package ie.tcd.scss.countryinfo.limit;
+
+/**
+ * A token bucket: holds up to capacity tokens and is refilled at a fixed rate. Each request takes one token, so a
+ * client can send bursts of up to capacity requests but no more than the refill rate in the long run.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double nanosPerToken;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * @param capacity The maximum number of tokens, i.e. the largest burst; the bucket starts full
+     * @param tokensPerSecond The refill rate
+     * @param now The current time in nanoseconds (System.nanoTime())
+     */
+    public TokenBucket(int capacity, double tokensPerSecond, long now) {
+        this.capacity = capacity;
+        this.nanosPerToken = 1e9 / tokensPerSecond;
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Takes a token if there is one.
+     *
+     * @param now The current time in nanoseconds
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next token is available
+     */
+    public synchronized long tryAcquire(long now) {
+        refill(now);
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) * nanosPerToken);
+    }
+
+    /**
+     * @return true if the bucket is full, i.e. the client has been idle long enough for its state to be dropped
+     */
+    public synchronized boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - refilledAt;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed / nanosPerToken);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package ie.tcd.scss.countryinfo.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.function.BinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Runs CPU-bound queries over the positions of a columnar data set (e.g. the countries of a snapshot), either
+ * sequentially on the calling thread or in parallel on a dedicated fork-join pool.
+ *
+ * Parallel execution has a fixed cost (handing the work to the pool, splitting, merging the partial results), so it
+ * only pays off for enough work: the caller estimates the work per element, and a query is run in parallel only if
+ * size times that estimate reaches the threshold. Measure it with QueryExecutorBenchmark (mvn test -Pperf).
+ *
+ * The pool is separate from the common pool, so that parallel streams elsewhere can't starve it, and from the
+ * Tomcat threads, which wait for the result. Only a few queries run in parallel at the same time; under load the
+ * request threads already keep all processors busy, so further queries simply run on their request thread.
+ */
+public class QueryExecutor implements AutoCloseable {
+
+    private static final QueryExecutor SEQUENTIAL = new QueryExecutor(1, Long.MAX_VALUE, 0);
+
+    private final ForkJoinPool pool; // null if there is only one thread
+    private final int parallelism;
+    private final long parallelThresholdNanos;
+    private final Semaphore parallelQueries;
+
+    /**
+     * @param parallelism The number of threads of the pool; 0 for one per available processor
+     * @param parallelThresholdNanos The estimated work from which queries are run in parallel
+     * @param maxParallelQueries The number of queries that may run in parallel at the same time
+     */
+    public QueryExecutor(int parallelism, long parallelThresholdNanos, int maxParallelQueries) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.parallelThresholdNanos = parallelThresholdNanos;
+        this.parallelQueries = new Semaphore(maxParallelQueries);
+        this.pool = this.parallelism == 1 ? null : new ForkJoinPool(this.parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("countryinfo-query-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * @return An executor that runs every query on the calling thread
+     */
+    public static QueryExecutor sequential() {
+        return SEQUENTIAL;
+    }
+
+    /**
+     * Collects the elements 0 to size - 1 into a result, like IntStream.collect, in parallel if the estimated work is
+     * large enough. The partial results are combined in the order of the elements.
+     *
+     * @param size The number of elements
+     * @param nanosPerElement The estimated work per element
+     * @param supplier Creates an empty (partial) result
+     * @param accumulator Adds an element to a partial result
+     * @param combiner Combines two partial results, the second covering the elements after those of the first
+     * @return The result
+     */
+    public <R> R collect(int size, long nanosPerElement, Supplier<R> supplier, ObjIntConsumer<R> accumulator,
+                         BinaryOperator<R> combiner) {
+        if (isParallel(size, nanosPerElement) && parallelQueries.tryAcquire()) {
+            try {
+                return parallel(size, nanosPerElement, supplier, accumulator, combiner);
+            } finally {
+                parallelQueries.release();
+            }
+        }
+        return sequential(size, supplier, accumulator);
+    }
+
+    /**
+     * Runs the action for the elements 0 to size - 1, in parallel if the estimated work is large enough.
+     *
+     * @param size The number of elements
+     * @param nanosPerElement The estimated work per element
+     * @param action The action, which must be safe to run for different elements concurrently
+     */
+    public void forEach(int size, long nanosPerElement, IntConsumer action) {
+        collect(size, nanosPerElement, () -> null, (none, i) -> action.accept(i), (none, other) -> null);
+    }
+
+    /**
+     * @return Whether a query of the given size would be run in parallel, if the pool isn't busy
+     */
+    public boolean isParallel(int size, long nanosPerElement) {
+        return parallelism > 1 && size > 1 && (long) size * nanosPerElement >= parallelThresholdNanos;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    static <R> R sequential(int size, Supplier<R> supplier, ObjIntConsumer<R> accumulator) {
+        R result = supplier.get();
+        for (int i = 0; i < size; i++) {
+            accumulator.accept(result, i);
+        }
+        return result;
+    }
+
+    <R> R parallel(int size, long nanosPerElement, Supplier<R> supplier, ObjIntConsumer<R> accumulator,
+                   BinaryOperator<R> combiner) {
+        // a few partitions per thread to balance uneven work, but none smaller than the threshold is worth
+        long minPartitionSize = parallelThresholdNanos / Math.max(1, nanosPerElement);
+        long partitionSize = Math.max(1, Math.max(minPartitionSize, size / (4L * parallelism)));
+        Spliterator.OfInt elements = IntStream.range(0, size).spliterator();
+        return pool.invoke(new PartitionTask<>(elements, partitionSize, supplier, accumulator, combiner));
+    }
+
+    /**
+     * Splits its elements with the spliterator until the parts are small enough, forks a task for each split-off
+     * part and processes the rest itself.
+     */
+    private static final class PartitionTask<R> extends RecursiveTask<R> {
+
+        private final Spliterator.OfInt elements;
+        private final long partitionSize;
+        private final Supplier<R> supplier;
+        private final ObjIntConsumer<R> accumulator;
+        private final BinaryOperator<R> combiner;
+
+        PartitionTask(Spliterator.OfInt elements, long partitionSize, Supplier<R> supplier,
+                      ObjIntConsumer<R> accumulator, BinaryOperator<R> combiner) {
+            this.elements = elements;
+            this.partitionSize = partitionSize;
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected R compute() {
+            List<PartitionTask<R>> forked = new ArrayList<>(); // each covers elements before the later ones
+            Spliterator.OfInt prefix;
+            while (elements.estimateSize() > partitionSize && (prefix = elements.trySplit()) != null) {
+                PartitionTask<R> task = new PartitionTask<>(prefix, partitionSize, supplier, accumulator, combiner);
+                task.fork();
+                forked.add(task);
+            }
+            R rest = supplier.get();
+            elements.forEachRemaining((int i) -> accumulator.accept(rest, i));
+
+            List<R> results = new ArrayList<>(forked.size());
+            for (int t = forked.size() - 1; t >= 0; t--) { // most recently forked first, likely not stolen
+                results.add(forked.get(t).join());
+            }
+            R result = rest;
+            for (R partial : results) { // in reverse: the last forked part directly precedes the rest
+                result = combiner.apply(partial, result);
+            }
+            return result;
+        }
+    }
+}
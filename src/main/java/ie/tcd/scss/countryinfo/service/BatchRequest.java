@@ -0,0 +1,12 @@
+package ie.tcd.scss.countryinfo.service;
+
+import java.util.List;
+
+/**
+ * Request body of the /countries/batch endpoint.
+ *
+ * @param queries The country names or ISO codes (cca2, cca3, ccn3) to resolve
+ * @param fields The paths of the Country fields to return, e.g. ["name.common", "flag"]; null or empty for all fields
+ */
+public record BatchRequest(List<String> queries, List<String> fields) {
+}
@@ -0,0 +1,11 @@
+package ie.tcd.scss.countryinfo.service;
+
+import java.util.List;
+
+/**
+ * Response body of the /countries/batch endpoint.
+ *
+ * @param results One result per query, in the order of the queries
+ */
+public record BatchResponse(List<BatchResult> results) {
+}
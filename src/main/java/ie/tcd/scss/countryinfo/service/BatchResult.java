@@ -0,0 +1,34 @@
+package ie.tcd.scss.countryinfo.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import ie.tcd.scss.countryinfo.domain.Country;
+
+/**
+ * The outcome of resolving one query of a batch request.
+ *
+ * @param query The query as it was sent
+ * @param status Whether a country was found
+ * @param country The country found, null otherwise
+ * @param error Why the query could not be resolved, if status is ERROR
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchResult(String query, Status status, Country country, String error) {
+
+    public enum Status {
+        FOUND,
+        NOT_FOUND,
+        ERROR
+    }
+
+    static BatchResult found(String query, Country country) {
+        return new BatchResult(query, Status.FOUND, country, null);
+    }
+
+    static BatchResult notFound(String query) {
+        return new BatchResult(query, Status.NOT_FOUND, null, null);
+    }
+
+    static BatchResult error(String query, String error) {
+        return new BatchResult(query, Status.ERROR, null, error);
+    }
+}
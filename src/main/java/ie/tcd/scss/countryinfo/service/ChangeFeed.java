@@ -0,0 +1,16 @@
+package ie.tcd.scss.countryinfo.service;
+
+import java.util.List;
+
+/**
+ * Response of the /countries/changes endpoint.
+ *
+ * @param epoch The identifier of the process the versions are counted by; pass it as "epoch" on the next poll
+ * @param version The current snapshot version; pass it as "since" on the next poll
+ * @param complete False if changes after the requested version are no longer retained (or the version predates the
+ *                 first snapshot, or is from another epoch), in which case the caller has to invalidate everything it
+ *                 cached
+ * @param changes The changes after the requested version, oldest first
+ */
+public record ChangeFeed(String epoch, long version, boolean complete, List<CountryChange> changes) {
+}
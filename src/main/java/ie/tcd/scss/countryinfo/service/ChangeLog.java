@@ -0,0 +1,90 @@
+package ie.tcd.scss.countryinfo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bounded history of the country changes between snapshot versions. Appends replace the retained list as a whole,
+ * so reads never lock.
+ *
+ * Versions are counted by each process, so they only mean something together with the epoch of the history they
+ * come from: after a restart, or on another instance behind a load balancer, the same version may stand for other
+ * data.
+ */
+public class ChangeLog {
+
+    private final int capacity;
+    private final String epoch = UUID.randomUUID().toString();
+
+    private volatile State state;
+
+    public ChangeLog(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Starts the history at the given version, i.e. the version of the first snapshot that was loaded. Changes
+     * before it are unknown.
+     */
+    public synchronized void start(long version) {
+        state = new State(version, List.of(), version);
+    }
+
+    /**
+     * Records the changes that lead to the given version, dropping the oldest changes beyond the capacity.
+     */
+    public synchronized void append(long version, List<CountryChange> changes) {
+        List<CountryChange> retained = new ArrayList<>(state.changes());
+        retained.addAll(changes);
+        long completeSince = state.completeSince();
+        if (retained.size() > capacity) {
+            List<CountryChange> dropped = retained.subList(0, retained.size() - capacity);
+            completeSince = dropped.get(dropped.size() - 1).version();
+            dropped.clear();
+            // never keep half of the changes of a version
+            while (!retained.isEmpty() && retained.get(0).version() <= completeSince) {
+                retained.remove(0);
+            }
+        }
+        state = new State(version, List.copyOf(retained), completeSince);
+    }
+
+    /**
+     * @return The identifier of this history, different in every process
+     */
+    public String getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the changes after the given version. The feed is incomplete if the version is not one of this history:
+     * if it is from another epoch, or newer than the current version, which happens when the caller last polled
+     * another process.
+     *
+     * @param since The last version the caller has seen
+     * @param epoch The epoch of the feed the caller last saw; null if unknown
+     * @return The current version and the changes after the given version
+     */
+    public ChangeFeed since(long since, String epoch) {
+        State current = state;
+        if (current == null) {
+            return new ChangeFeed(this.epoch, 0, false, List.of());
+        }
+        if ((epoch != null && !epoch.equals(this.epoch)) || since > current.version()) {
+            return new ChangeFeed(this.epoch, current.version(), false, List.of());
+        }
+        List<CountryChange> changes = current.changes().stream()
+                .filter(change -> change.version() > since)
+                .toList();
+        return new ChangeFeed(this.epoch, current.version(), since >= current.completeSince(), changes);
+    }
+
+    /**
+     * @param version The latest version
+     * @param changes The retained changes, oldest first
+     * @param completeSince The oldest version from which on all changes are retained
+     */
+    private record State(long version, List<CountryChange> changes, long completeSince) {
+    }
+}
@@ -0,0 +1,55 @@
+package ie.tcd.scss.countryinfo.service;
+
+import ie.tcd.scss.countryinfo.aggregation.AggregateFunction;
+import ie.tcd.scss.countryinfo.aggregation.CountryColumns;
+import ie.tcd.scss.countryinfo.aggregation.GroupBy;
+import ie.tcd.scss.countryinfo.aggregation.Metric;
+import ie.tcd.scss.countryinfo.aggregation.Rollup;
+import ie.tcd.scss.countryinfo.query.QueryExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * This class answers group-by queries (e.g. total population per region, number of countries per currency or
+ * average Gini coefficient per subregion) from the in-memory snapshot of all countries.
+ */
+@Service
+public class CountryAggregationService {
+
+    private final CountryDataset dataset;
+    private final QueryExecutor queryExecutor;
+
+    public CountryAggregationService(CountryDataset dataset, QueryExecutor queryExecutor) {
+        this.dataset = dataset;
+        this.queryExecutor = queryExecutor;
+    }
+
+    /**
+     * Groups the countries by the given field and aggregates the given metric per group. Without restrictions the
+     * result is read from the rollup precomputed for the snapshot; otherwise the matching countries are aggregated
+     * in a single pass over the snapshot's columns, which is split into parallel passes if it is large enough.
+     *
+     * @param groupBy The field to group by
+     * @param function The aggregate function to apply
+     * @param metric The metric to aggregate; may be null for COUNT
+     * @param restrictions Only countries belonging to all of these groups are included, e.g. {REGION: "Europe"}
+     * @return The aggregated value per group
+     */
+    public Map<String, Double> aggregate(GroupBy groupBy, AggregateFunction function, Metric metric,
+                                         Map<GroupBy, String> restrictions) {
+        CountrySnapshot snapshot = dataset.getSnapshot();
+        if (restrictions.isEmpty()) {
+            return snapshot.getRollup(groupBy).toMap(function, metric);
+        }
+
+        CountryColumns columns = snapshot.getColumns();
+        IntPredicate filter = c -> true;
+        for (Map.Entry<GroupBy, String> restriction : restrictions.entrySet()) {
+            filter = filter.and(columns.memberOf(restriction.getKey(), restriction.getValue()));
+        }
+        Rollup rollup = columns.rollup(groupBy, filter, queryExecutor);
+        return rollup.toMap(function, metric);
+    }
+}
@@ -0,0 +1,215 @@
+package ie.tcd.scss.countryinfo.service;
+
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.query.QueryExecutor;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * This class resolves many country names or codes in one go, for the /countries/batch endpoint.
+ *
+ * Queries are first looked up in the in-memory snapshot, in parallel only for batches of several thousand queries.
+ * Only the remaining ones go to the restcountries API: each distinct query once, codes grouped into a few
+ * /alpha?codes= calls, and names on a small, bounded pool of upstream threads. A batch looks up at most
+ * countryinfo.batch.max-upstream-names names upstream; the names beyond that get an error result instead of queueing
+ * behind the others.
+ */
+@Service
+public class CountryBatchService {
+
+    // estimated work of looking up one query in the snapshot, measured by QueryExecutorBenchmark (38 to 54 ns)
+    private static final long LOOKUP_NANOS_PER_QUERY = 40;
+
+    // what a cca2, cca3 or ccn3 code looks like
+    private static final Pattern CODE = Pattern.compile("[a-z]{2,3}|[0-9]{3}");
+
+    private final RestTemplate restTemplate;
+    private final CountryDataset dataset;
+    private final CountryService countryService;
+    private final CountryInfoProperties.Batch properties;
+    private final String apiUrlByCodes;
+    private final ExecutorService upstreamExecutor;
+    private final QueryExecutor queryExecutor;
+
+    public CountryBatchService(RestTemplate restTemplate, CountryDataset dataset, CountryService countryService,
+                               CountryInfoProperties properties, QueryExecutor queryExecutor) {
+        this.restTemplate = restTemplate;
+        this.dataset = dataset;
+        this.countryService = countryService;
+        this.properties = properties.getBatch();
+        this.apiUrlByCodes = properties.getUpstream().url(CountryService.PATH_BYCODES);
+        this.upstreamExecutor = Executors.newFixedThreadPool(this.properties.getUpstreamConcurrency());
+        this.queryExecutor = queryExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        upstreamExecutor.shutdownNow();
+    }
+
+    /**
+     * Resolves every query to a country.
+     *
+     * @param queries Country names or codes
+     * @param upstreamFields The top-level Country fields to request for queries resolved upstream; null or empty for
+     *                       all fields
+     * @return One result per query, in the same order
+     */
+    public BatchResponse lookup(List<String> queries, Collection<String> upstreamFields) {
+        CountrySnapshot snapshot = dataset.getSnapshot();
+        BatchResult[] results = new BatchResult[queries.size()];
+        queryExecutor.forEach(queries.size(), LOOKUP_NANOS_PER_QUERY, i -> {
+            String query = queries.get(i);
+            if (query == null || query.isBlank()) {
+                results[i] = BatchResult.notFound(query);
+                return;
+            }
+            CountryRecord record = snapshot.find(query);
+            if (record != null) {
+                results[i] = BatchResult.found(query, record.getCountry());
+            }
+        });
+
+        // positions of the queries that are not in the snapshot, per distinct normalized query
+        Map<String, List<Integer>> unresolved = new LinkedHashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                unresolved.computeIfAbsent(normalize(queries.get(i)), q -> new ArrayList<>()).add(i);
+            }
+        }
+        if (!unresolved.isEmpty()) {
+            resolveUpstream(queries, unresolved, upstreamFields, results);
+        }
+        return new BatchResponse(Arrays.asList(results));
+    }
+
+    private void resolveUpstream(List<String> queries, Map<String, List<Integer>> unresolved,
+                                 Collection<String> fields, BatchResult[] results) {
+        List<String> codes = new ArrayList<>();
+        List<Future<?>> calls = new ArrayList<>();
+        int names = 0;
+        for (String query : unresolved.keySet()) {
+            if (CODE.matcher(query).matches()) {
+                codes.add(query);
+            } else if (names++ < properties.getMaxUpstreamNames()) {
+                calls.add(upstreamExecutor.submit(
+                        () -> resolveName(query, fields, queries, unresolved.get(query), results)));
+            } else {
+                String error = "Too many names to look up upstream, at most " + properties.getMaxUpstreamNames()
+                        + " per batch";
+                unresolved.get(query).forEach(i -> results[i] = BatchResult.error(queries.get(i), error));
+            }
+        }
+        int chunkSize = properties.getCodesPerUpstreamCall();
+        for (int start = 0; start < codes.size(); start += chunkSize) {
+            List<String> chunk = codes.subList(start, Math.min(start + chunkSize, codes.size()));
+            calls.add(upstreamExecutor.submit(() -> resolveCodes(chunk, fields, queries, unresolved, results)));
+        }
+
+        for (Future<?> call : calls) {
+            try {
+                call.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while resolving batch", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Resolving batch failed", e.getCause());
+            }
+        }
+    }
+
+    private void resolveName(String name, Collection<String> fields, List<String> queries, List<Integer> positions,
+                             BatchResult[] results) {
+        try {
+            Country country = countryService.getCountryInfo(name, fields);
+            for (int i : positions) {
+                results[i] = country != null
+                        ? BatchResult.found(queries.get(i), country)
+                        : BatchResult.notFound(queries.get(i));
+            }
+        } catch (RestClientException | IllegalArgumentException e) { // an error for this name, not the whole batch
+            positions.forEach(i -> results[i] = BatchResult.error(queries.get(i), e.getMessage()));
+        }
+    }
+
+    private void resolveCodes(List<String> codes, Collection<String> fields, List<String> queries,
+                              Map<String, List<Integer>> unresolved, BatchResult[] results) {
+        // the codes match CODE, so they need no encoding
+        UriComponentsBuilder url = UriComponentsBuilder.fromHttpUrl(apiUrlByCodes + String.join(",", codes));
+        String withCodes = "";
+        if (fields != null && !fields.isEmpty()) {
+            // the codes are needed to match the results to the queries
+            Set<String> selected = new TreeSet<>(fields);
+            selected.addAll(List.of("cca2", "cca3", "ccn3", "cioc"));
+            withCodes = String.join(",", selected);
+            url.queryParam("fields", "{fields}");
+        }
+        Country[] countries;
+        try {
+            URI uri = url.encode().buildAndExpand(Map.of("fields", withCodes)).toUri();
+            countries = restTemplate.getForObject(uri, Country[].class);
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() != HttpStatus.NOT_FOUND) {
+                setError(codes, queries, unresolved, results, e.getMessage());
+                return;
+            }
+            countries = null; // none of the codes exists
+        } catch (RestClientException | IllegalArgumentException e) {
+            setError(codes, queries, unresolved, results, e.getMessage());
+            return;
+        }
+
+        for (String code : codes) {
+            Country match = null;
+            for (Country country : countries != null ? countries : new Country[0]) {
+                if (hasCode(country, code)) {
+                    match = country;
+                    break;
+                }
+            }
+            for (int i : unresolved.get(code)) {
+                results[i] = match != null
+                        ? BatchResult.found(queries.get(i), match)
+                        : BatchResult.notFound(queries.get(i));
+            }
+        }
+    }
+
+    private static void setError(List<String> codes, List<String> queries, Map<String, List<Integer>> unresolved,
+                                 BatchResult[] results, String error) {
+        for (String code : codes) {
+            unresolved.get(code).forEach(i -> results[i] = BatchResult.error(queries.get(i), error));
+        }
+    }
+
+    private static boolean hasCode(Country country, String code) {
+        return code.equalsIgnoreCase(country.getCca2()) || code.equalsIgnoreCase(country.getCca3())
+                || code.equalsIgnoreCase(country.getCcn3()) || code.equalsIgnoreCase(country.getCioc());
+    }
+
+    private static String normalize(String query) {
+        return query.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,18 @@
+package ie.tcd.scss.countryinfo.service;
+
+/**
+ * A change to a single country between two snapshot versions.
+ *
+ * @param version The snapshot version that introduced the change
+ * @param code The code of the country, see {@link CountryRecord#getCode()}
+ * @param type Whether the country was added, updated or removed
+ * @param contentHash The new content hash of the country; null if it was removed
+ */
+public record CountryChange(long version, String code, Type type, String contentHash) {
+
+    public enum Type {
+        ADDED,
+        UPDATED,
+        REMOVED
+    }
+}
@@ -0,0 +1,204 @@
+package ie.tcd.scss.countryinfo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.query.QueryExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class holds the in-memory snapshot of all countries. The snapshot is downloaded from the /all endpoint the
+ * first time it is needed and then shared by all requests.
+ *
+ * The data set is refreshed periodically (countryinfo.refresh.interval-ms). A refresh compares each country to the
+ * current snapshot by the hash of its JSON; only changed countries are deserialized again, and a new snapshot is
+ * only published if something changed. Readers are never blocked: they keep using the old snapshot until the new
+ * one has been built completely and swapped in atomically, see {@link SnapshotHolder}. Every change is recorded in a
+ * {@link ChangeLog}, and every new snapshot is announced with a {@link SnapshotPublishedEvent}.
+ */
+@Component
+public class CountryDataset {
+
+    private static final Logger log = LoggerFactory.getLogger(CountryDataset.class);
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final CountryInfoProperties properties;
+    private final ChangeLog changeLog;
+    private final QueryExecutor queryExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final SnapshotHolder<CountrySnapshot> snapshots = new SnapshotHolder<>(CountrySnapshot::getVersion);
+
+    public CountryDataset(RestTemplate restTemplate, ObjectMapper objectMapper, CountryInfoProperties properties,
+                          QueryExecutor queryExecutor, ApplicationEventPublisher eventPublisher) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.changeLog = new ChangeLog(properties.getRefresh().getChangeLogSize());
+        this.queryExecutor = queryExecutor;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Returns the current snapshot, loading it first if this is the first call.
+     *
+     * @return The current snapshot; empty if the data set could not be loaded
+     */
+    public CountrySnapshot getSnapshot() {
+        CountrySnapshot current = snapshots.get();
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshots.get() == null) {
+                refresh();
+            }
+            current = snapshots.get();
+        }
+        return current != null ? current : CountrySnapshot.empty();
+    }
+
+    /**
+     * Returns the changes made to the data set after the given snapshot version.
+     *
+     * @param since The last version the caller has seen
+     * @param epoch The epoch of the feed the caller last saw; null if unknown
+     * @return The current version and the changes after the given version
+     */
+    public ChangeFeed getChanges(long since, String epoch) {
+        return changeLog.since(since, epoch);
+    }
+
+    @Scheduled(initialDelayString = "${countryinfo.refresh.interval-ms}",
+            fixedDelayString = "${countryinfo.refresh.interval-ms}")
+    public void scheduledRefresh() {
+        CountrySnapshot current = snapshots.get();
+        if (current == null) {
+            return; // nothing was requested yet, the first request loads the data set
+        }
+        try {
+            refresh();
+        } catch (RuntimeException e) { // e.g. the API is down; the next refresh tries again
+            log.warn("Refreshing the country data set failed, keeping version {}", current.getVersion(), e);
+        }
+    }
+
+    /**
+     * Downloads all countries and publishes a new snapshot if anything changed.
+     *
+     * @return The changes found, empty if nothing changed or the data set could not be downloaded
+     */
+    public synchronized List<CountryChange> refresh() {
+        JsonNode payload = restTemplate.getForObject(properties.getUpstream().url(CountryService.PATH_ALL),
+                JsonNode.class);
+        if (payload == null || !payload.isArray() || payload.isEmpty()) {
+            return List.of(); // keep what we have, try again next time
+        }
+
+        CountrySnapshot current = snapshots.get();
+        long version = current == null ? 1 : current.getVersion() + 1;
+        List<CountryRecord> records = new ArrayList<>();
+        List<CountryChange> changes = new ArrayList<>();
+        Set<String> codes = new HashSet<>();
+        for (JsonNode node : payload) {
+            String hash = hash(node);
+            String code = codeOf(node);
+            if (code == null || !codes.add(code)) {
+                continue; // entries without name or duplicates can't be tracked
+            }
+            CountryRecord previous = current == null ? null : current.getRecord(code);
+            if (previous != null && previous.getContentHash().equals(hash)) {
+                records.add(previous);
+                continue;
+            }
+            CountryRecord record = toRecord(code, hash, node);
+            if (record == null) {
+                if (previous != null) {
+                    records.add(previous); // keep the last good version rather than reporting it as removed
+                }
+                continue;
+            }
+            records.add(record);
+            changes.add(new CountryChange(version, code,
+                    previous == null ? CountryChange.Type.ADDED : CountryChange.Type.UPDATED, hash));
+        }
+        if (current != null) {
+            for (CountryRecord previous : current.getRecords()) {
+                if (!codes.contains(previous.getCode())) {
+                    changes.add(new CountryChange(version, previous.getCode(), CountryChange.Type.REMOVED, null));
+                }
+            }
+            if (changes.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        records.sort(Comparator.comparing(CountryRecord::getCode));
+        CountrySnapshot next = CountrySnapshot.build(version, records, current,
+                properties.getAutocomplete().getMaxResults(), properties.getSimilarity().getTopK(), queryExecutor);
+        if (!snapshots.publish(next)) {
+            return List.of(); // a newer version was published meanwhile
+        }
+        if (current == null) {
+            changeLog.start(version);
+            log.info("Loaded {} countries as version {}", records.size(), version);
+        } else {
+            changeLog.append(version, changes);
+            log.info("Refreshed country data set to version {}: {} changes", version, changes.size());
+        }
+        eventPublisher.publishEvent(new SnapshotPublishedEvent(next));
+        return current == null ? List.of() : changes;
+    }
+
+    /**
+     * @return The record of the country, or null if its JSON doesn't match the domain model
+     */
+    private CountryRecord toRecord(String code, String hash, JsonNode node) {
+        try {
+            Country country = objectMapper.treeToValue(node, Country.class);
+            return new CountryRecord(code, hash, country, objectMapper.writeValueAsBytes(country));
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping malformed country {}", code, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return The cca3 code of the country, or its common name if it has none; null if it has no common name, as
+     * every index of the snapshot needs one
+     */
+    private static String codeOf(JsonNode node) {
+        JsonNode cca3 = node.path("cca3");
+        JsonNode commonName = node.path("name").path("common");
+        if (!commonName.isTextual()) {
+            return null;
+        }
+        return cca3.isTextual() ? cca3.asText() : commonName.asText();
+    }
+
+    private String hash(JsonNode node) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(node));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not hash country JSON", e);
+        }
+    }
+}
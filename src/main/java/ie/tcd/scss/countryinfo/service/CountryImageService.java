@@ -0,0 +1,150 @@
+package ie.tcd.scss.countryinfo.service;
+
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.image.CountryImage;
+import ie.tcd.scss.countryinfo.image.ImageCache;
+import ie.tcd.scss.countryinfo.image.ImageCache.CachedImage;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class serves the flag and coat of arms images of the countries from a local cache, so that clients don't have
+ * to fetch them from the third-party hosts the data set links to. Images are downloaded the first time they are asked
+ * for, and the images configured in countryinfo.images.prefetch (by default the flags) are downloaded for all
+ * countries in the background whenever a new version of the data set is loaded.
+ */
+@Service
+public class CountryImageService {
+
+    private static final Logger log = LoggerFactory.getLogger(CountryImageService.class);
+
+    private final CountryDataset dataset;
+    private final RestTemplate restTemplate;
+    private final ImageCache cache;
+    private final List<CountryImage> prefetched = new ArrayList<>();
+    private final ExecutorService prefetchExecutor;
+
+    public CountryImageService(CountryDataset dataset, RestTemplateBuilder restTemplateBuilder,
+                               CountryInfoProperties properties) {
+        CountryInfoProperties.Images settings = properties.getImages();
+        this.dataset = dataset;
+        // not the restcountries RestTemplate: the images are on other hosts, which must not affect its concurrency
+        // limit
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofMillis(settings.getConnectTimeoutMs()))
+                .setReadTimeout(Duration.ofMillis(settings.getReadTimeoutMs()))
+                .build();
+        this.cache = new ImageCache(settings.getMaxCacheBytes());
+        for (String fileName : settings.getPrefetch()) {
+            CountryImage image = CountryImage.fromFileName(fileName.trim());
+            if (image == null) {
+                throw new IllegalArgumentException("Unknown image in countryinfo.images.prefetch: " + fileName);
+            }
+            prefetched.add(image);
+        }
+        this.prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "countryinfo-image-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns an image of a country, downloading it if it is not cached yet.
+     *
+     * @param countryName The name or code of the country
+     * @param image The image to return
+     * @return The image; null if the country is not in the data set or has no such image
+     * @throws RestClientException If the image could not be downloaded
+     */
+    public CachedImage getImage(String countryName, CountryImage image) {
+        CountryRecord record = dataset.getSnapshot().find(countryName);
+        String url = record != null ? image.urlOf(record.getCountry()) : null;
+        if (url == null) {
+            return null;
+        }
+        CachedImage cached = cache.get(url);
+        // concurrent requests may download the same image twice, which is cheaper than making them wait for each other
+        return cached != null ? cached : download(url, image);
+    }
+
+    /**
+     * Downloads the prefetched images of all countries of a new snapshot that are not cached yet, in the background.
+     */
+    @EventListener
+    public void prefetch(SnapshotPublishedEvent event) {
+        if (prefetched.isEmpty()) {
+            return;
+        }
+        List<Country> countries = event.snapshot().getCountries();
+        prefetchExecutor.execute(() -> {
+            int downloaded = 0;
+            int failed = 0;
+            for (Country country : countries) {
+                for (CountryImage image : prefetched) {
+                    String url = image.urlOf(country);
+                    if (Thread.currentThread().isInterrupted()) {
+                        return; // shutting down
+                    }
+                    if (url == null || cache.get(url) != null) {
+                        continue;
+                    }
+                    try {
+                        download(url, image);
+                        downloaded++;
+                    } catch (RestClientException e) {
+                        failed++;
+                        log.debug("Prefetching {} failed", url, e);
+                    }
+                }
+            }
+            log.info("Prefetched {} images for version {} of the data set, {} failed; {} images ({} bytes) cached",
+                    downloaded, event.snapshot().getVersion(), failed, cache.size(), cache.bytes());
+        });
+    }
+
+    private CachedImage download(String url, CountryImage image) {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            throw new RestClientException("Invalid image URL " + url, e);
+        }
+        byte[] content = restTemplate.getForObject(uri, byte[].class);
+        if (content == null) {
+            throw new RestClientException("Empty image at " + url);
+        }
+        return cache.put(url, image.getContentType(), content, hash(content));
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, 16); // as unique as needed to tell versions of an image apart
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not hash image", e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package ie.tcd.scss.countryinfo.service;
+
+/**
+ * The current local time in one time zone of a country, as returned by /countries/{countryname}/local-time.
+ *
+ * @param timezone The time zone as the restcountries API names it, e.g. "UTC+01:00"
+ * @param localTime The local date and time with its offset in ISO 8601 format, e.g. "2024-03-01T14:30:00+01:00"
+ */
+public record CountryLocalTime(String timezone, String localTime) {
+}
@@ -0,0 +1,50 @@
+package ie.tcd.scss.countryinfo.service;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+
+/**
+ * One country of a snapshot together with the data derived from it: the code identifying it across snapshots, the
+ * hash of the upstream JSON it was read from and its serialized JSON response.
+ *
+ * Records are immutable. When a refresh finds a country with an unchanged hash, the record of the previous snapshot
+ * is carried over as-is, so everything cached per record stays valid.
+ */
+public class CountryRecord {
+
+    private final String code;
+    private final String contentHash;
+    private final Country country;
+    private final byte[] json;
+
+    public CountryRecord(String code, String contentHash, Country country, byte[] json) {
+        this.code = code;
+        this.contentHash = contentHash;
+        this.country = country;
+        this.json = json;
+    }
+
+    /**
+     * @return The cca3 code of the country, or its common name if it has none
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return Hex-encoded SHA-256 hash of the upstream JSON of the country
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public Country getCountry() {
+        return country;
+    }
+
+    /**
+     * @return The country serialized as JSON; must not be modified
+     */
+    public byte[] getJson() {
+        return json;
+    }
+}
@@ -1,16 +1,28 @@
 package ie.tcd.scss.countryinfo.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
 import ie.tcd.scss.countryinfo.domain.Country;
 import ie.tcd.scss.countryinfo.domain.Translation;
+import ie.tcd.scss.countryinfo.index.DialingCodeTrie;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -22,15 +34,30 @@ import java.util.stream.Stream;
 public class CountryService {
 
     private final RestTemplate restTemplate;
+    private final CountryDataset dataset;
+    private final ObjectMapper objectMapper;
+    private final ObservationRegistry observationRegistry;
 
-    // base URL to retrieve country information by name
-    private static final String API_URL_BYNAME = "https://restcountries.com/v3.1/name/";
+    // path to retrieve country information by name, below countryinfo.upstream.base-url
+    static final String PATH_BYNAME = "/name/";
 
-    // base URL to retrieve country information for all countries
-    private static final String API_URL_ALL = "https://restcountries.com/v3.1/all/";
+    // path to retrieve country information for all countries
+    static final String PATH_ALL = "/all/";
 
-    public CountryService(RestTemplate restTemplate) {
+    // path to retrieve country information for a comma-separated list of cca2, cca3 or ccn3 codes
+    static final String PATH_BYCODES = "/alpha?codes=";
+
+    private final String apiUrlByName;
+    private final URI apiUrlAll;
+
+    public CountryService(RestTemplate restTemplate, CountryDataset dataset, CountryInfoProperties properties,
+                          ObjectMapper objectMapper, ObservationRegistry observationRegistry) {
         this.restTemplate = restTemplate;
+        this.dataset = dataset;
+        this.objectMapper = objectMapper;
+        this.observationRegistry = observationRegistry;
+        this.apiUrlByName = properties.getUpstream().url(PATH_BYNAME);
+        this.apiUrlAll = URI.create(properties.getUpstream().url(PATH_ALL));
     }
 
     public String getFlagForCountry(String countryName) {
@@ -42,23 +69,11 @@ public class CountryService {
     }
 
     public String getMapForCountry(String countryName) {
-        Country[] countries = restTemplate.getForObject(API_URL_ALL, Country[].class);
-        if (countries != null) {
-            List<String> countriesList= Stream.of(countries) // convert to Stream
-                    .filter(c -> c.getName().getCommon().toLowerCase().contains(substring.toLowerCase())) // filter by substring, case-insensitive
-                    .sorted(Comparator.comparingInt(Country::getPopulation).reversed()) // sort by population, descending
-                    .map(c -> c.getName().getCommon()) // map country to country name
-                    .collect(Collectors.toList()); //
-            
-            List<String> countriesWithPopulation = new ArrayList<String>();
-            for (int i = 0; i < countriesList.size(); i++) {
-            	 
-            	countriesWithPopulation.add(countriesList.get(i)+" ("+getCountryInfo(countriesList.get(i)).getPopulation() +")");
-            }
-            return countriesWithPopulation;
-            
+        Country country = getCountryInfo(countryName);
+        if (country != null && country.getMaps() != null) {
+            return country.getMaps().getGoogleMaps();
         }
-        return List.of(); // return empty list if no countries found
+        return null; // return null if no country found
     }
 
     public List<String> getContinentsForCountry(String countryName) {
@@ -71,37 +86,139 @@ public class CountryService {
 
 
     public List<String> getMostPopulousCountries(String substring) {
-        Country[] countries = restTemplate.getForObject(API_URL_ALL, Country[].class);
+        Country[] countries = fetchCountries(apiUrlAll);
         if (countries != null) {
-            return Stream.of(countries) // convert to Stream
+            return observe("countryinfo.filter-sort", () -> Stream.of(countries) // convert to Stream
                     .filter(c -> c.getName().getCommon().toLowerCase().contains(substring.toLowerCase())) // filter by substring, case-insensitive
                     .sorted(Comparator.comparingInt(Country::getPopulation).reversed()) // sort by population, descending
                     .map(c -> c.getName().getCommon()) // map country to country name
-                    .collect(Collectors.toList()); //
+                    .collect(Collectors.toList())); //
         }
         return List.of(); // return empty list if no countries found
     }
 
     public List<String> getMostPopulousCountriesWithPopulation(String substring) {
-        Country[] countries = restTemplate.getForObject(API_URL_ALL, Country[].class);
+        Country[] countries = fetchCountries(apiUrlAll);
         if (countries != null) {
-            List<String> countriesList= Stream.of(countries) // convert to Stream
+            List<String> countriesList= observe("countryinfo.filter-sort", () -> Stream.of(countries) // convert to Stream
                     .filter(c -> c.getName().getCommon().toLowerCase().contains(substring.toLowerCase())) // filter by substring, case-insensitive
                     .sorted(Comparator.comparingInt(Country::getPopulation).reversed()) // sort by population, descending
                     .map(c -> c.getName().getCommon()) // map country to country name
-                    .collect(Collectors.toList()); //
+                    .collect(Collectors.toList())); //
             
-            List<String> countriesWithPopulation = new ArrayList<String>();
-            for (int i = 0; i < countriesList.size(); i++) {
-            	 
-            	countriesWithPopulation.add(countriesList.get(i)+" ("+getCountryInfo(countriesList.get(i)).getPopulation() +")");
-            }
-            return countriesWithPopulation;
+            // one upstream call per country; each shows up as a child of this stage
+            return observe("countryinfo.population-lookups", () -> {
+                List<String> countriesWithPopulation = new ArrayList<String>();
+                for (int i = 0; i < countriesList.size(); i++) {
+
+                    countriesWithPopulation.add(countriesList.get(i)+" ("+getCountryInfo(countriesList.get(i)).getPopulation() +")");
+                }
+                return countriesWithPopulation;
+            });
             
         }
         return List.of(); // return empty list if no countries found
     }
 
+    /**
+     * Suggests country names for a search box. A country matches if its common or official name, one of its
+     * alternative spellings, translations or native names starts with the given prefix (case-insensitive).
+     *
+     * @param prefix The prefix typed so far
+     * @return The common names of the matching countries in descending order of population, at most
+     * countryinfo.autocomplete.max-results of them
+     */
+    public List<String> getAutocompleteSuggestions(String prefix) {
+        return dataset.getSnapshot().getAutocomplete().complete(prefix);
+    }
+
+    /**
+     * Finds the countries most similar to the given one: sharing languages, currencies, a border, the region or the
+     * subregion, in nearby time zones and of a similar population and area. The similarities are precomputed when the
+     * data set is loaded, so this is answered without calling the restcountries API.
+     *
+     * @param countryName The name or code of the country
+     * @param limit The number of countries to return; at most countryinfo.similarity.top-k
+     * @return The most similar countries, most similar first; null if the country is not in the data set
+     */
+    public List<SimilarCountry> getSimilarCountries(String countryName, int limit) {
+        CountrySnapshot snapshot = dataset.getSnapshot();
+        CountryRecord record = snapshot.find(countryName);
+        return record != null ? snapshot.getSimilarCountries(record.getCode(), limit) : null;
+    }
+
+    /**
+     * Finds the countries a phone number belongs to by the longest dialling code (IDD root and suffix) it starts
+     * with, e.g. +353 for Ireland. Answered from a trie built when the data set is loaded, without calling the
+     * restcountries API.
+     *
+     * @param number A phone number in international format, starting with + or 00
+     * @return The countries with the longest matching dialling code, usually one; empty if none matches
+     */
+    public List<Country> getCountriesByDialingCode(String number) {
+        CountrySnapshot snapshot = dataset.getSnapshot();
+        DialingCodeTrie.Match match = snapshot.getDialingCodes().longestMatch(number);
+        return match != null ? countriesAt(snapshot, match.countries()) : List.of();
+    }
+
+    /**
+     * Finds the countries using the top-level domain of a domain name, e.g. Ireland for ".ie" or "www.tcd.ie".
+     * Answered from an index built when the data set is loaded, without calling the restcountries API.
+     *
+     * @param domain A top-level domain, with or without the leading dot, or a domain name
+     * @return The countries using the top-level domain; empty if there are none
+     */
+    public List<Country> getCountriesByTld(String domain) {
+        CountrySnapshot snapshot = dataset.getSnapshot();
+        return countriesAt(snapshot, snapshot.getTlds().lookup(domain));
+    }
+
+    /**
+     * Returns all countries of the data set, for exporting them one by one.
+     *
+     * @return The records of all countries, ordered by cca3 code
+     */
+    public Stream<CountryRecord> streamAllCountries() {
+        return dataset.getSnapshot().getRecords().stream();
+    }
+
+    /**
+     * Returns the current snapshot of the country data set. A refresh may publish a new snapshot at any time, so a
+     * request that reads several things from the data set (e.g. its version and its countries) should get the
+     * snapshot once and read everything from it.
+     *
+     * @return The current snapshot
+     */
+    public CountrySnapshot getSnapshot() {
+        return dataset.getSnapshot();
+    }
+
+    /**
+     * Lazily finds the countries whose common name contains the given substring (case-insensitive), in descending
+     * order of population. Unlike getMostPopulousCountries, nothing is collected: the records are produced one at a
+     * time while the caller consumes them.
+     *
+     * @param substring The substring to search for
+     * @return The matching records, most populous first
+     */
+    public Stream<CountryRecord> streamMostPopulousCountries(String substring) {
+        String lowerCaseSubstring = substring.toLowerCase();
+        return dataset.getSnapshot().getRecordsByPopulation().stream()
+                .filter(r -> r.getCountry().getName().getCommon().toLowerCase().contains(lowerCaseSubstring));
+    }
+
+    /**
+     * Returns the changes made to the country data set since the given version, so that callers can invalidate
+     * exactly the countries they cached instead of everything.
+     *
+     * @param since The last version the caller has seen; 0 on the first call
+     * @return The current version and the changes after the given version
+     */
+    public ChangeFeed getChanges(long since, String epoch) {
+        dataset.getSnapshot(); // make sure the data set was loaded
+        return dataset.getChanges(since, epoch);
+    }
+
     /**
      * Retrieves information about a country matching the given name. If multiple countries are found, only the first
      * one is returned.
@@ -110,8 +227,26 @@ public class CountryService {
      * @return A Country object with the information about the found country, or null if no country found
      */
     public Country getCountryInfo(String countryName) {
+        return getCountryInfo(countryName, null);
+    }
+
+    /**
+     * Retrieves the given fields of a country matching the given name. A country whose exact name or code is in the
+     * snapshot of the data set is returned from there, with all fields. For any other name, only the given fields are
+     * requested from the restcountries API (using its "fields" parameter), so less data is transferred and parsed; all
+     * other fields of the returned Country are null.
+     *
+     * @param countryName The name of the country or countries to retrieve.
+     * @param fields The top-level Country fields to retrieve, e.g. "name" or "flags"; null or empty for all fields
+     * @return A Country object with the information about the found country, or null if no country found
+     */
+    public Country getCountryInfo(String countryName, Collection<String> fields) {
+        CountryRecord record = dataset.getSnapshot().find(countryName);
+        if (record != null) {
+            return record.getCountry();
+        }
         try {
-            Country[] countries = restTemplate.getForObject(API_URL_BYNAME + countryName, Country[].class);
+            Country[] countries = fetchCountries(urlByName(countryName, fields));
             return countries != null && countries.length > 0 ? countries[0] : null; // return first country if found
         } catch (HttpClientErrorException e) {
             if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
@@ -132,7 +267,7 @@ public class CountryService {
      */
     public List<Country> getCountriesInfo(String countryName) {
         try {
-            Country[] countries = restTemplate.getForObject(API_URL_BYNAME + countryName, Country[].class);
+            Country[] countries = fetchCountries(urlByName(countryName, null));
             // If countries are found, convert the array to a List and return it
             if (countries != null) {
                 return Arrays.asList(countries);
@@ -150,6 +285,54 @@ public class CountryService {
     }
 
 
+    /**
+     * Builds the URL to retrieve the countries matching a name. The name and fields are encoded as URI variables, so
+     * that characters like /, ?, # or { in them can't change the path or query of the upstream request.
+     *
+     * @param countryName The name of the country or countries to retrieve
+     * @param fields The top-level Country fields to retrieve; null or empty for all fields
+     * @return The URL to retrieve
+     */
+    URI urlByName(String countryName, Collection<String> fields) {
+        UriComponentsBuilder url = UriComponentsBuilder.fromHttpUrl(apiUrlByName).path("{name}");
+        if (fields != null && !fields.isEmpty()) {
+            url.queryParam("fields", "{fields}");
+        }
+        return url.encode()
+                .buildAndExpand(Map.of("name", countryName, "fields", fields != null ? String.join(",", fields) : ""))
+                .toUri();
+    }
+
+    /**
+     * Retrieves countries from the restcountries API. Fetching and deserializing are separate steps, so that they are
+     * traced and timed separately: the RestTemplate observes the upstream call, and the deserialization is observed
+     * as "countryinfo.deserialize".
+     *
+     * @param url The URL to retrieve
+     * @return The countries, or null if the response has no body
+     */
+    private Country[] fetchCountries(URI url) {
+        byte[] body = restTemplate.getForObject(url, byte[].class);
+        if (body == null) {
+            return null;
+        }
+        return observe("countryinfo.deserialize", () -> {
+            try {
+                return objectMapper.readValue(body, Country[].class);
+            } catch (IOException e) {
+                throw new RestClientException("Could not read the countries from " + url, e);
+            }
+        });
+    }
+
+    /**
+     * Runs one stage of a request as an observation, which becomes a span of the request's trace and an entry of its
+     * Server-Timing header.
+     */
+    private <T> T observe(String stage, Supplier<T> work) {
+        return Observation.createNotStarted(stage, observationRegistry).observe(work);
+    }
+
     /**
      * Retrieves the translation for the country name in the specified language.
      *
@@ -193,4 +376,12 @@ public class CountryService {
 
         // return ...
     }
+
+    private static List<Country> countriesAt(CountrySnapshot snapshot, int[] positions) {
+        List<Country> countries = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            countries.add(snapshot.getCountries().get(position));
+        }
+        return countries;
+    }
 }
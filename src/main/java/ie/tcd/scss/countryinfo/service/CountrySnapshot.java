@@ -0,0 +1,421 @@
+package ie.tcd.scss.countryinfo.service;
+
+import ie.tcd.scss.countryinfo.aggregation.CountryColumns;
+import ie.tcd.scss.countryinfo.aggregation.GroupBy;
+import ie.tcd.scss.countryinfo.aggregation.Metric;
+import ie.tcd.scss.countryinfo.aggregation.Rollup;
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.domain.NativeName;
+import ie.tcd.scss.countryinfo.domain.Translation;
+import ie.tcd.scss.countryinfo.index.DialingCodeTrie;
+import ie.tcd.scss.countryinfo.index.PrefixTrie;
+import ie.tcd.scss.countryinfo.index.TldIndex;
+import ie.tcd.scss.countryinfo.query.QueryExecutor;
+import ie.tcd.scss.countryinfo.similarity.CountryFeatures;
+import ie.tcd.scss.countryinfo.similarity.SimilarityTable;
+import ie.tcd.scss.countryinfo.timezone.TimezoneIndex;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Immutable in-memory copy of the https://restcountries.com/v3.1/all data set, together with the indexes built
+ * from it. A snapshot is built once and then only read, so it can be shared freely between request threads.
+ *
+ * Every refresh of the data set produces a new snapshot with a higher version. Indexes that only depend on fields
+ * that did not change are taken over from the previous snapshot instead of being rebuilt.
+ */
+public class CountrySnapshot {
+
+    private final long version;
+    private final List<CountryRecord> records;          // sorted by code
+    private final Map<String, CountryRecord> recordsByCode;
+    private final Map<String, CountryRecord> recordsByNameOrCode; // lower case keys
+    private final List<Country> countries;              // same order as records
+    private final List<CountryRecord> recordsByPopulation;
+    private final PrefixTrie autocomplete;
+    private final CountryColumns columns;
+    private final Map<GroupBy, Rollup> rollups;
+    private final Map<String, Integer> positionsByCode;  // positions in records
+    private final SimilarityTable similarity;
+    private final TimezoneIndex timezones;
+    private final DialingCodeTrie dialingCodes;
+    private final TldIndex tlds;
+
+    private CountrySnapshot(long version, List<CountryRecord> records, PrefixTrie autocomplete,
+                            CountryColumns columns, Map<GroupBy, Rollup> rollups, SimilarityTable similarity,
+                            TimezoneIndex timezones, DialingCodeTrie dialingCodes, TldIndex tlds) {
+        this.version = version;
+        this.records = records;
+        this.recordsByCode = new HashMap<>();
+        this.positionsByCode = new HashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            recordsByCode.put(records.get(i).getCode(), records.get(i));
+            positionsByCode.put(records.get(i).getCode(), i);
+        }
+        this.recordsByNameOrCode = indexByNameOrCode(records);
+        this.countries = records.stream().map(CountryRecord::getCountry).toList();
+        this.recordsByPopulation = records.stream()
+                .sorted(Comparator.comparingLong((CountryRecord r) -> populationOf(r.getCountry())).reversed())
+                .toList();
+        this.autocomplete = autocomplete;
+        this.columns = columns;
+        this.rollups = rollups;
+        this.similarity = similarity;
+        this.timezones = timezones;
+        this.dialingCodes = dialingCodes;
+        this.tlds = tlds;
+    }
+
+    /**
+     * Builds a snapshot from the given records. Indexes are taken over from the previous snapshot if none of the
+     * fields they depend on changed, otherwise they are rebuilt.
+     *
+     * @param version The version of the new snapshot
+     * @param records The records of all countries, sorted by code
+     * @param previous The snapshot this one replaces, or null for the first snapshot
+     * @param maxCompletions The number of autocomplete suggestions cached per prefix
+     * @param similarCountries The number of similar countries precomputed per country
+     * @param executor Runs the rollups over all countries and the scoring of all pairs of countries
+     * @return The new snapshot
+     */
+    public static CountrySnapshot build(long version, List<CountryRecord> records, CountrySnapshot previous,
+                                        int maxCompletions, int similarCountries, QueryExecutor executor) {
+        List<Country> countries = records.stream().map(CountryRecord::getCountry).toList();
+
+        PrefixTrie autocomplete = unchanged(previous, records, CountrySnapshot::autocompleteFields)
+                ? previous.autocomplete
+                : buildAutocomplete(countries, maxCompletions);
+
+        // columns, similarities, time zones, dialling codes and domains are addressed by position, so they can only be
+        // kept if the same countries are in the same order
+        SimilarityTable similarity = previous != null && previous.similarity.getK() == similarCountries
+                && unchanged(previous, records, CountrySnapshot::similarityFields)
+                ? previous.similarity
+                : SimilarityTable.build(CountryFeatures.of(countries), similarCountries, executor);
+        TimezoneIndex timezones = unchanged(previous, records, CountrySnapshot::timezoneFields)
+                ? previous.timezones
+                : TimezoneIndex.of(countries);
+        DialingCodeTrie dialingCodes = unchanged(previous, records, CountrySnapshot::dialingCodeFields)
+                ? previous.dialingCodes
+                : DialingCodeTrie.of(countries);
+        TldIndex tlds = unchanged(previous, records, CountrySnapshot::tldFields)
+                ? previous.tlds
+                : TldIndex.of(countries);
+
+        if (unchanged(previous, records, CountrySnapshot::aggregationFields)) {
+            return new CountrySnapshot(version, records, autocomplete, previous.columns, previous.rollups, similarity,
+                    timezones, dialingCodes, tlds);
+        }
+        CountryColumns columns = CountryColumns.of(countries);
+        // the rollups over all countries are asked for most often, so they are computed once per snapshot
+        Map<GroupBy, Rollup> rollups = new EnumMap<>(GroupBy.class);
+        for (GroupBy groupBy : GroupBy.values()) {
+            rollups.put(groupBy, columns.rollup(groupBy, c -> true, executor));
+        }
+        return new CountrySnapshot(version, records, autocomplete, columns, rollups, similarity, timezones,
+                dialingCodes, tlds);
+    }
+
+    /**
+     * @return An empty snapshot, used while no data could be loaded yet
+     */
+    public static CountrySnapshot empty() {
+        return build(0, List.of(), null, 0, 0, QueryExecutor.sequential());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<CountryRecord> getRecords() {
+        return records;
+    }
+
+    /**
+     * @param code The cca3 code of the country
+     * @return The record of the country, or null if there is none
+     */
+    public CountryRecord getRecord(String code) {
+        return recordsByCode.get(code);
+    }
+
+    /**
+     * Finds a country by its exact name or code, ignoring case. Names are the common and official name, the
+     * alternative spellings and the native names; codes are cca2, cca3, ccn3 and cioc. Codes take precedence over
+     * names, and native names give way to the other names.
+     *
+     * @param nameOrCode The name or code to look up
+     * @return The record of the country, or null if there is none
+     */
+    public CountryRecord find(String nameOrCode) {
+        return recordsByNameOrCode.get(nameOrCode.trim().toLowerCase(Locale.ROOT));
+    }
+
+    public List<Country> getCountries() {
+        return countries;
+    }
+
+    /**
+     * @return All records in descending order of population, so that filtered results come out sorted
+     */
+    public List<CountryRecord> getRecordsByPopulation() {
+        return recordsByPopulation;
+    }
+
+    public PrefixTrie getAutocomplete() {
+        return autocomplete;
+    }
+
+    public CountryColumns getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return The precomputed rollup over all countries for the given field
+     */
+    public Rollup getRollup(GroupBy groupBy) {
+        return rollups.get(groupBy);
+    }
+
+    /**
+     * @return The index of the UTC offsets of the countries, by position in getRecords()
+     */
+    public TimezoneIndex getTimezones() {
+        return timezones;
+    }
+
+    /**
+     * @return The trie of the dialling codes of the countries, by position in getRecords()
+     */
+    public DialingCodeTrie getDialingCodes() {
+        return dialingCodes;
+    }
+
+    /**
+     * @return The index of the top-level domains of the countries, by position in getRecords()
+     */
+    public TldIndex getTlds() {
+        return tlds;
+    }
+
+    /**
+     * @param code The code of a country of this snapshot
+     * @return The position of the country in getRecords(), or -1 if it is not in this snapshot
+     */
+    public int positionOf(String code) {
+        Integer position = positionsByCode.get(code);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * Returns the countries most similar to the given one, see {@link CountryFeatures#similarity}.
+     *
+     * @param code The code of a country of this snapshot
+     * @param limit The number of countries to return; at most the number precomputed per country
+     * @return The most similar countries, most similar first; empty if the country is not in this snapshot
+     */
+    public List<SimilarCountry> getSimilarCountries(String code, int limit) {
+        int position = positionOf(code);
+        if (position < 0) {
+            return List.of();
+        }
+        List<SimilarCountry> similar = new ArrayList<>();
+        for (int rank = 0; rank < Math.min(limit, similarity.getK()); rank++) {
+            int neighbour = similarity.neighbour(position, rank);
+            if (neighbour < 0) {
+                break;
+            }
+            CountryRecord record = records.get(neighbour);
+            double score = Math.round(similarity.score(position, rank) * 1000) / 1000.0; // stored as a float
+            similar.add(new SimilarCountry(record.getCode(), record.getCountry().getName().getCommon(), score));
+        }
+        return similar;
+    }
+
+    /**
+     * Checks whether the previous snapshot has the same countries in the same order and none of the given fields
+     * changed for any of them.
+     */
+    private static boolean unchanged(CountrySnapshot previous, List<CountryRecord> records,
+                                     Function<Country, Object> fields) {
+        if (previous == null || previous.records.size() != records.size()) {
+            return false;
+        }
+        for (int i = 0; i < records.size(); i++) {
+            CountryRecord record = records.get(i);
+            CountryRecord previousRecord = previous.records.get(i);
+            if (record == previousRecord) {
+                continue; // carried over, nothing changed
+            }
+            if (!record.getCode().equals(previousRecord.getCode())
+                    || !fields.apply(record.getCountry()).equals(fields.apply(previousRecord.getCountry()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, CountryRecord> indexByNameOrCode(List<CountryRecord> records) {
+        Map<String, CountryRecord> index = new HashMap<>();
+        // added first, so that a native name that is another country's English name doesn't replace it
+        for (CountryRecord record : records) {
+            Map<String, NativeName> nativeNames = record.getCountry().getName().getNativeName();
+            if (nativeNames != null) {
+                nativeNames.values().forEach(nativeName -> {
+                    putLowerCase(index, nativeName.getCommon(), record);
+                    putLowerCase(index, nativeName.getOfficial(), record);
+                });
+            }
+        }
+        for (CountryRecord record : records) {
+            Country country = record.getCountry();
+            putLowerCase(index, country.getName().getCommon(), record);
+            putLowerCase(index, country.getName().getOfficial(), record);
+            if (country.getAltSpellings() != null) {
+                country.getAltSpellings().forEach(altSpelling -> putLowerCase(index, altSpelling, record));
+            }
+        }
+        // added last, so that they replace names that happen to look like codes
+        for (CountryRecord record : records) {
+            Country country = record.getCountry();
+            List<String> codes = Arrays.asList(country.getCca2(), country.getCca3(), country.getCcn3(),
+                    country.getCioc());
+            codes.forEach(code -> putLowerCase(index, code, record));
+        }
+        return index;
+    }
+
+    private static void putLowerCase(Map<String, CountryRecord> index, String key, CountryRecord record) {
+        if (key != null && !key.isEmpty()) {
+            index.put(key.toLowerCase(Locale.ROOT), record);
+        }
+    }
+
+    /**
+     * @return The fields the autocomplete index is built from
+     */
+    private static Object autocompleteFields(Country country) {
+        List<Object> fields = new ArrayList<>();
+        fields.add(country.getName().getCommon());
+        fields.add(Objects.toString(country.getName().getOfficial()));
+        fields.add(Objects.toString(country.getAltSpellings()));
+        fields.add(populationOf(country));
+        if (country.getTranslations() != null) {
+            country.getTranslations().forEach((language, translation) ->
+                    fields.add(language + ":" + translation.getCommon() + ":" + translation.getOfficial()));
+        }
+        if (country.getName().getNativeName() != null) {
+            country.getName().getNativeName().forEach((language, nativeName) ->
+                    fields.add(language + ":" + nativeName.getCommon() + ":" + nativeName.getOfficial()));
+        }
+        return fields;
+    }
+
+    /**
+     * @return The fields the aggregation columns are built from
+     */
+    private static Object aggregationFields(Country country) {
+        List<Object> fields = new ArrayList<>();
+        for (Metric metric : Metric.values()) {
+            fields.add(metric.valueOf(country)); // boxed, so that NaN equals NaN
+        }
+        for (GroupBy groupBy : GroupBy.values()) {
+            fields.add(List.copyOf(groupBy.keysOf(country)));
+        }
+        return fields;
+    }
+
+    /**
+     * @return The fields the timezone index is built from
+     */
+    private static Object timezoneFields(Country country) {
+        return Arrays.asList(country.getTimezones(), country.getStartOfWeek());
+    }
+
+    /**
+     * @return The fields the dialling code trie is built from
+     */
+    private static Object dialingCodeFields(Country country) {
+        return country.getIdd() != null
+                ? Arrays.asList(country.getIdd().getRoot(), country.getIdd().getSuffixes())
+                : List.of();
+    }
+
+    /**
+     * @return The fields the top-level domain index is built from
+     */
+    private static Object tldFields(Country country) {
+        return Objects.requireNonNullElse(country.getTld(), List.of());
+    }
+
+    /**
+     * @return The fields the feature vectors of the similarity table are built from
+     */
+    private static Object similarityFields(Country country) {
+        return Arrays.asList(country.getCca3(), country.getRegion(), country.getSubregion(), country.getBorders(),
+                country.getTimezones(), country.getPopulation(), country.getArea(),
+                country.getLanguages() != null ? List.copyOf(country.getLanguages().keySet()) : null,
+                country.getCurrencies() != null ? List.copyOf(country.getCurrencies().keySet()) : null);
+    }
+
+    /**
+     * Indexes every name variant of every country (common and official name, alternative spellings, translations and
+     * native names) under the common name, weighted by population.
+     */
+    private static PrefixTrie buildAutocomplete(List<Country> countries, int maxCompletions) {
+        PrefixTrie.Builder builder = PrefixTrie.builder();
+        for (Country country : countries) {
+            String commonName = country.getName().getCommon();
+            long population = populationOf(country);
+
+            addNameVariant(builder, commonName, commonName, population);
+            addNameVariant(builder, country.getName().getOfficial(), commonName, population);
+            if (country.getAltSpellings() != null) {
+                for (String altSpelling : country.getAltSpellings()) {
+                    addNameVariant(builder, altSpelling, commonName, population);
+                }
+            }
+            if (country.getTranslations() != null) {
+                for (Translation translation : country.getTranslations().values()) {
+                    addNameVariant(builder, translation.getCommon(), commonName, population);
+                    addNameVariant(builder, translation.getOfficial(), commonName, population);
+                }
+            }
+            if (country.getName().getNativeName() != null) {
+                for (NativeName nativeName : country.getName().getNativeName().values()) {
+                    addNameVariant(builder, nativeName.getCommon(), commonName, population);
+                    addNameVariant(builder, nativeName.getOfficial(), commonName, population);
+                }
+            }
+        }
+        return builder.build(maxCompletions);
+    }
+
+    /**
+     * Adds a name, and if it contains accents also its unaccented form, so that e.g. "cote" finds "Côte d'Ivoire".
+     */
+    private static void addNameVariant(PrefixTrie.Builder builder, String name, String commonName, long population) {
+        if (name == null) {
+            return;
+        }
+        builder.add(name, commonName, population);
+        String unaccented = Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        if (!unaccented.equals(name)) {
+            builder.add(unaccented, commonName, population);
+        }
+    }
+
+    static long populationOf(Country country) {
+        return country.hasPopulation() ? country.getPopulation() : 0;
+    }
+}
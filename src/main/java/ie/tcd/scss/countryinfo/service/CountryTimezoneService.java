@@ -0,0 +1,103 @@
+package ie.tcd.scss.countryinfo.service;
+
+import ie.tcd.scss.countryinfo.timezone.TimezoneIndex;
+import ie.tcd.scss.countryinfo.timezone.UtcOffsets;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * This class answers time zone queries (which countries are in business hours, which countries share a UTC offset
+ * with a given one, what time it is in a country) from the timezone index of the in-memory snapshot, without parsing
+ * time zones per request.
+ */
+@Service
+public class CountryTimezoneService {
+
+    private final CountryDataset dataset;
+    private final Clock clock;
+
+    public CountryTimezoneService(CountryDataset dataset, Clock clock) {
+        this.dataset = dataset;
+        this.clock = clock;
+    }
+
+    /**
+     * Finds the countries where it currently is a working day between the given hours, in at least one of their time
+     * zones.
+     *
+     * @param fromHour The start of the business hours, 0 to 23
+     * @param toHour The end of the business hours, after fromHour, up to 24
+     * @return The common names of the countries in business hours, ordered by code
+     */
+    public List<String> getCountriesInBusinessHours(int fromHour, int toHour) {
+        CountrySnapshot snapshot = dataset.getSnapshot();
+        BitSet open = snapshot.getTimezones().inBusinessHours(clock.instant(), fromHour * 60, toHour * 60);
+        return names(snapshot, open);
+    }
+
+    /**
+     * Finds the countries that share at least one UTC offset with the given one.
+     *
+     * @param countryName The name or code of the country
+     * @return The common names of the other countries with one of its offsets, ordered by code; null if the country
+     * is not in the data set
+     */
+    public List<String> getTimezonePeers(String countryName) {
+        CountrySnapshot snapshot = dataset.getSnapshot();
+        int country = positionOf(snapshot, countryName);
+        if (country < 0) {
+            return null;
+        }
+        TimezoneIndex timezones = snapshot.getTimezones();
+        BitSet peers = new BitSet();
+        for (int offset : timezones.offsetsOf(country)) {
+            peers.or(timezones.withOffsetBetween(offset, offset + 1));
+        }
+        peers.clear(country);
+        return names(snapshot, peers);
+    }
+
+    /**
+     * Returns the current local time in every time zone of the given country.
+     *
+     * @param countryName The name or code of the country
+     * @return The local time per time zone, westernmost first; null if the country is not in the data set
+     */
+    public List<CountryLocalTime> getLocalTimes(String countryName) {
+        CountrySnapshot snapshot = dataset.getSnapshot();
+        int country = positionOf(snapshot, countryName);
+        if (country < 0) {
+            return null;
+        }
+        Instant now = clock.instant().truncatedTo(ChronoUnit.SECONDS);
+        List<CountryLocalTime> localTimes = new ArrayList<>();
+        for (int offset : snapshot.getTimezones().offsetsOf(country)) {
+            OffsetDateTime localTime = now.atOffset(ZoneOffset.ofTotalSeconds(offset * 60));
+            localTimes.add(new CountryLocalTime(UtcOffsets.format(offset),
+                    localTime.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)));
+        }
+        return localTimes;
+    }
+
+    private static int positionOf(CountrySnapshot snapshot, String countryName) {
+        CountryRecord record = snapshot.find(countryName);
+        return record != null ? snapshot.positionOf(record.getCode()) : -1;
+    }
+
+    private static List<String> names(CountrySnapshot snapshot, BitSet positions) {
+        List<String> names = new ArrayList<>(positions.cardinality());
+        for (int c = positions.nextSetBit(0); c >= 0; c = positions.nextSetBit(c + 1)) {
+            names.add(snapshot.getRecords().get(c).getCountry().getName().getCommon());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,11 @@
+package ie.tcd.scss.countryinfo.service;
+
+/**
+ * A country similar to another one, as returned by /countries/{countryname}/similar.
+ *
+ * @param code The cca3 code of the country
+ * @param name The common name of the country
+ * @param score How similar the country is, from 0 (nothing in common) to 1
+ */
+public record SimilarCountry(String code, String name, double score) {
+}
@@ -0,0 +1,55 @@
+package ie.tcd.scss.countryinfo.service;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToLongFunction;
+
+/**
+ * Holds the current version of an immutable data set, e.g. a {@link CountrySnapshot}. Readers get it with a single
+ * volatile read and no locks; a new version is built elsewhere and then published with one atomic swap, so readers
+ * see either the old or the new version completely, never a mix.
+ *
+ * Readers should get the snapshot once per request and use that for everything the request does. The holder only
+ * references the current version; a superseded version stays reachable exactly as long as requests that started
+ * before the swap still use it, and is then garbage collected, so no reference counting or grace period is needed.
+ *
+ * Versions only move forward: publishing a version that is not newer than the current one (e.g. from a refresh that
+ * started before another one finished) has no effect.
+ */
+public final class SnapshotHolder<T> {
+
+    private final AtomicReference<T> current = new AtomicReference<>();
+    private final ToLongFunction<T> version;
+
+    /**
+     * @param version Returns the version of a snapshot
+     */
+    public SnapshotHolder(ToLongFunction<T> version) {
+        this.version = version;
+    }
+
+    /**
+     * @return The current snapshot, or null if none was published yet
+     */
+    public T get() {
+        return current.get();
+    }
+
+    /**
+     * Makes the given snapshot the current one, unless a snapshot of the same or a newer version was published.
+     *
+     * @param next The new snapshot, completely built
+     * @return Whether the snapshot was published
+     */
+    public boolean publish(T next) {
+        long nextVersion = version.applyAsLong(next);
+        while (true) {
+            T previous = current.get();
+            if (previous != null && version.applyAsLong(previous) >= nextVersion) {
+                return false;
+            }
+            if (current.compareAndSet(previous, next)) {
+                return true;
+            }
+        }
+    }
+}
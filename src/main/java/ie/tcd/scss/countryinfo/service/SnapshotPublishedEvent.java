@@ -0,0 +1,10 @@
+package ie.tcd.scss.countryinfo.service;
+
+/**
+ * Published by {@link CountryDataset} when a new snapshot of the data set has been swapped in, for work that should be
+ * done once per version of the data set, ahead of the requests needing it.
+ *
+ * @param snapshot The new snapshot
+ */
+public record SnapshotPublishedEvent(CountrySnapshot snapshot) {
+}
@@ -0,0 +1,226 @@
+package ie.tcd.scss.countryinfo.similarity;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.timezone.UtcOffsets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Feature vectors of a list of countries, for scoring how similar two countries are: bitsets of the languages,
+ * currencies and neighbours of every country, ids of its region and subregion, the range of its UTC offsets, and its
+ * population and area on a logarithmic scale normalized to [0, 1]. Like {@link
+ * ie.tcd.scss.countryinfo.aggregation.CountryColumns}, countries are identified by their position in the list the
+ * features were built from.
+ */
+public final class CountryFeatures {
+
+    // weights of the parts of the similarity score, adding up to 1
+    static final double LANGUAGES = 0.25;
+    static final double CURRENCIES = 0.15;
+    static final double BORDER = 0.15;
+    static final double REGION = 0.10;
+    static final double SUBREGION = 0.10;
+    static final double TIMEZONE = 0.10;
+    static final double POPULATION = 0.075;
+    static final double AREA = 0.075;
+
+    private static final int NO_OFFSET = UtcOffsets.NO_OFFSET;
+    private static final double MAX_OFFSET_DISTANCE = 12 * 60; // minutes; further apart counts as unrelated
+
+    private final int size;
+    private final Bits languages;
+    private final Bits currencies;
+    private final Bits borders;        // bit j of country i: i and j share a border
+    private final int[] regions;       // -1 if unknown
+    private final int[] subregions;    // -1 if unknown
+    private final int[] minOffsets;    // UTC offsets in minutes, NO_OFFSET if unknown
+    private final int[] maxOffsets;
+    private final double[] population; // normalized, NaN if unknown
+    private final double[] area;       // normalized, NaN if unknown
+
+    private CountryFeatures(List<Country> countries) {
+        this.size = countries.size();
+        this.languages = Bits.of(countries, c -> c.getLanguages() != null ? c.getLanguages().keySet() : List.of());
+        this.currencies = Bits.of(countries, c -> c.getCurrencies() != null ? c.getCurrencies().keySet() : List.of());
+        this.borders = borders(countries);
+        this.regions = ids(countries, Country::getRegion);
+        this.subregions = ids(countries, Country::getSubregion);
+        this.minOffsets = new int[size];
+        this.maxOffsets = new int[size];
+        for (int c = 0; c < size; c++) {
+            offsetRange(countries.get(c), c);
+        }
+        this.population = normalizedLog(countries, c -> c.hasPopulation() ? c.getPopulation() : Double.NaN);
+        this.area = normalizedLog(countries, c -> c.getArea() != null ? c.getArea() : Double.NaN);
+    }
+
+    public static CountryFeatures of(List<Country> countries) {
+        return new CountryFeatures(countries);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Scores how similar two countries are: the overlap of their languages and currencies, whether they share a
+     * border, a region or a subregion, how far apart their time zones are, and how close they are in population and
+     * area.
+     *
+     * @return The similarity of the countries at the given positions, from 0 (nothing in common) to 1
+     */
+    public double similarity(int a, int b) {
+        double score = LANGUAGES * languages.jaccard(a, b) + CURRENCIES * currencies.jaccard(a, b);
+        if (borders.get(a, b)) {
+            score += BORDER;
+        }
+        if (regions[a] >= 0 && regions[a] == regions[b]) {
+            score += REGION;
+        }
+        if (subregions[a] >= 0 && subregions[a] == subregions[b]) {
+            score += SUBREGION;
+        }
+        if (minOffsets[a] != NO_OFFSET && minOffsets[b] != NO_OFFSET) {
+            int gap = Math.max(0, Math.max(minOffsets[a], minOffsets[b]) - Math.min(maxOffsets[a], maxOffsets[b]));
+            score += TIMEZONE * Math.max(0, 1 - gap / MAX_OFFSET_DISTANCE);
+        }
+        score += closeness(POPULATION, population[a], population[b]) + closeness(AREA, area[a], area[b]);
+        return score;
+    }
+
+    private static double closeness(double weight, double a, double b) {
+        return Double.isNaN(a) || Double.isNaN(b) ? 0 : weight * (1 - Math.abs(a - b));
+    }
+
+    private static Bits borders(List<Country> countries) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int c = 0; c < countries.size(); c++) {
+            if (countries.get(c).getCca3() != null) {
+                positions.put(countries.get(c).getCca3(), c);
+            }
+        }
+        Bits borders = new Bits(countries.size(), countries.size());
+        for (int c = 0; c < countries.size(); c++) {
+            List<String> codes = countries.get(c).getBorders();
+            if (codes != null) {
+                for (String code : codes) {
+                    Integer neighbour = positions.get(code);
+                    if (neighbour != null) { // symmetric, even if only one side lists the border
+                        borders.set(c, neighbour);
+                        borders.set(neighbour, c);
+                    }
+                }
+            }
+        }
+        return borders;
+    }
+
+    private static int[] ids(List<Country> countries, Function<Country, String> field) {
+        Map<String, Integer> idByValue = new HashMap<>();
+        int[] ids = new int[countries.size()];
+        for (int c = 0; c < countries.size(); c++) {
+            String value = field.apply(countries.get(c));
+            ids[c] = value == null || value.isEmpty() ? -1 : idByValue.computeIfAbsent(value, v -> idByValue.size());
+        }
+        return ids;
+    }
+
+    private void offsetRange(Country country, int c) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        if (country.getTimezones() != null) {
+            for (String timezone : country.getTimezones()) {
+                int offset = UtcOffsets.parse(timezone);
+                if (offset != NO_OFFSET) {
+                    min = Math.min(min, offset);
+                    max = Math.max(max, offset);
+                }
+            }
+        }
+        minOffsets[c] = min <= max ? min : NO_OFFSET;
+        maxOffsets[c] = min <= max ? max : NO_OFFSET;
+    }
+
+    private static double[] normalizedLog(List<Country> countries, ToDoubleFunction<Country> field) {
+        double[] values = new double[countries.size()];
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < values.length; c++) {
+            double value = field.applyAsDouble(countries.get(c));
+            values[c] = Double.isNaN(value) || value < 0 ? Double.NaN : Math.log10(1 + value);
+            if (!Double.isNaN(values[c])) {
+                min = Math.min(min, values[c]);
+                max = Math.max(max, values[c]);
+            }
+        }
+        double range = max > min ? max - min : 1;
+        for (int c = 0; c < values.length; c++) {
+            values[c] = (values[c] - min) / range; // NaN stays NaN
+        }
+        return values;
+    }
+
+    /**
+     * One bitset per country, all in one array of words.
+     */
+    private static final class Bits {
+
+        private final int words; // per country
+        private final long[] bits;
+
+        Bits(int countries, int width) {
+            this.words = Math.max(1, (width + 63) / 64);
+            this.bits = new long[countries * words];
+        }
+
+        /**
+         * @return Bitsets of the values of the given field, one bit per distinct value
+         */
+        static Bits of(List<Country> countries, Function<Country, Collection<String>> field) {
+            Map<String, Integer> bitByValue = new HashMap<>();
+            List<Collection<String>> values = new ArrayList<>(countries.size());
+            for (Country country : countries) {
+                Collection<String> countryValues = field.apply(country);
+                countryValues.forEach(value -> bitByValue.computeIfAbsent(value, v -> bitByValue.size()));
+                values.add(countryValues);
+            }
+            Bits bits = new Bits(countries.size(), bitByValue.size());
+            for (int c = 0; c < values.size(); c++) {
+                for (String value : values.get(c)) {
+                    bits.set(c, bitByValue.get(value));
+                }
+            }
+            return bits;
+        }
+
+        void set(int country, int bit) {
+            bits[country * words + bit / 64] |= 1L << bit;
+        }
+
+        boolean get(int country, int bit) {
+            return (bits[country * words + bit / 64] & (1L << bit)) != 0;
+        }
+
+        /**
+         * @return The size of the intersection divided by the size of the union of the bitsets of two countries; 0 if
+         * both are empty
+         */
+        double jaccard(int a, int b) {
+            int intersection = 0;
+            int union = 0;
+            for (int w = 0; w < words; w++) {
+                long x = bits[a * words + w];
+                long y = bits[b * words + w];
+                intersection += Long.bitCount(x & y);
+                union += Long.bitCount(x | y);
+            }
+            return union == 0 ? 0 : (double) intersection / union;
+        }
+    }
+}
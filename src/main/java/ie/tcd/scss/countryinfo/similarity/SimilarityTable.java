@@ -0,0 +1,88 @@
+package ie.tcd.scss.countryinfo.similarity;
+
+import ie.tcd.scss.countryinfo.query.QueryExecutor;
+
+import java.util.Arrays;
+
+/**
+ * The K most similar countries of every country, precomputed from all pairs of countries when a snapshot is built, so
+ * that looking them up is a read of one slice of an array. Countries are identified by their position, as in the
+ * {@link CountryFeatures} the table was built from.
+ */
+public final class SimilarityTable {
+
+    // estimated work of scoring one pair of countries, times the number of countries gives the work per row;
+    // measured by QueryExecutorBenchmark (about 37 ns)
+    private static final long NANOS_PER_PAIR = 40;
+
+    private final int k;
+    private final int[] neighbours; // [country * k + rank], most similar first; -1 after the last
+    private final float[] scores;   // [country * k + rank]
+
+    private SimilarityTable(int k, int[] neighbours, float[] scores) {
+        this.k = k;
+        this.neighbours = neighbours;
+        this.scores = scores;
+    }
+
+    /**
+     * Scores every pair of countries and keeps the K best of each. The rows are computed in parallel if there are
+     * enough countries.
+     *
+     * @param features The features of the countries
+     * @param k The number of similar countries to keep per country
+     * @param executor Runs the computation of the rows
+     * @return The table
+     */
+    public static SimilarityTable build(CountryFeatures features, int k, QueryExecutor executor) {
+        int size = features.size();
+        int[] neighbours = new int[size * k];
+        float[] scores = new float[size * k];
+        Arrays.fill(neighbours, -1);
+        executor.forEach(size, size * NANOS_PER_PAIR, a -> {
+            int offset = a * k;
+            int count = 0;
+            for (int b = 0; b < size; b++) {
+                if (b == a) {
+                    continue;
+                }
+                float score = (float) features.similarity(a, b);
+                if (count == k && score <= scores[offset + k - 1]) {
+                    continue; // ties go to the country that comes first
+                }
+                int rank = count < k ? count++ : k - 1;
+                while (rank > 0 && scores[offset + rank - 1] < score) {
+                    neighbours[offset + rank] = neighbours[offset + rank - 1];
+                    scores[offset + rank] = scores[offset + rank - 1];
+                    rank--;
+                }
+                neighbours[offset + rank] = b;
+                scores[offset + rank] = score;
+            }
+        });
+        return new SimilarityTable(k, neighbours, scores);
+    }
+
+    /**
+     * @return The number of similar countries kept per country
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * @param country The position of a country
+     * @param rank 0 for the most similar country, up to K - 1
+     * @return The position of the country of the given rank, or -1 if there are fewer other countries
+     */
+    public int neighbour(int country, int rank) {
+        return neighbours[country * k + rank];
+    }
+
+    /**
+     * @return The similarity score of the country of the given rank, see {@link CountryFeatures#similarity}
+     */
+    public double score(int country, int rank) {
+        return scores[country * k + rank];
+    }
+}
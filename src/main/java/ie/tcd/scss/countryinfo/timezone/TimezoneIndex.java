@@ -0,0 +1,149 @@
+package ie.tcd.scss.countryinfo.timezone;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The UTC offsets of a list of countries, parsed once and sorted, so that "which countries have an offset between a
+ * and b" is a binary search instead of parsing the time zones of every country. Countries with several time zones
+ * have one entry per distinct offset. As in {@link ie.tcd.scss.countryinfo.aggregation.CountryColumns}, countries are
+ * identified by their position in the list the index was built from.
+ */
+public final class TimezoneIndex {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int[] offsets;          // sorted ascending
+    private final int[] countries;        // countries[i] has offsets[i]
+    private final int[][] offsetsByCountry; // [country] -> distinct offsets, ascending
+    private final int[] weekendDays;      // [country] -> bit per DayOfWeek ordinal
+
+    private TimezoneIndex(int[] offsets, int[] countries, int[][] offsetsByCountry, int[] weekendDays) {
+        this.offsets = offsets;
+        this.countries = countries;
+        this.offsetsByCountry = offsetsByCountry;
+        this.weekendDays = weekendDays;
+    }
+
+    public static TimezoneIndex of(List<Country> countries) {
+        int[][] offsetsByCountry = new int[countries.size()][];
+        int[] weekendDays = new int[countries.size()];
+        int entries = 0;
+        for (int c = 0; c < countries.size(); c++) {
+            Country country = countries.get(c);
+            List<String> timezones = country.getTimezones() != null ? country.getTimezones() : List.of();
+            offsetsByCountry[c] = timezones.stream()
+                    .mapToInt(UtcOffsets::parse)
+                    .filter(offset -> offset != UtcOffsets.NO_OFFSET)
+                    .distinct()
+                    .sorted()
+                    .toArray();
+            weekendDays[c] = weekendDays(country.getStartOfWeek());
+            entries += offsetsByCountry[c].length;
+        }
+
+        long[] sorted = new long[entries]; // offset in the high bits, country in the low bits
+        int i = 0;
+        for (int c = 0; c < offsetsByCountry.length; c++) {
+            for (int offset : offsetsByCountry[c]) {
+                sorted[i++] = ((long) offset << 32) | c;
+            }
+        }
+        Arrays.sort(sorted);
+        int[] offsets = new int[entries];
+        int[] positions = new int[entries];
+        for (i = 0; i < entries; i++) {
+            offsets[i] = (int) (sorted[i] >> 32);
+            positions[i] = (int) sorted[i];
+        }
+        return new TimezoneIndex(offsets, positions, offsetsByCountry, weekendDays);
+    }
+
+    /**
+     * @return The distinct UTC offsets of the country at the given position in minutes, ascending
+     */
+    public int[] offsetsOf(int country) {
+        return offsetsByCountry[country].clone();
+    }
+
+    /**
+     * @param from The smallest offset in minutes
+     * @param to The offset in minutes after the largest one
+     * @return The positions of the countries that have an offset in [from, to)
+     */
+    public BitSet withOffsetBetween(int from, int to) {
+        BitSet result = new BitSet(offsetsByCountry.length);
+        addWithOffsetBetween(from, to, result);
+        return result;
+    }
+
+    /**
+     * Finds the countries where it is a working day and the local time is within the given hours at the given
+     * instant, in at least one of their time zones. The weekend is taken to be the two days before the country's
+     * first day of the week (Saturday and Sunday if the week starts on Monday).
+     *
+     * @param now The instant
+     * @param open The start of the business hours, in minutes after midnight
+     * @param close The end of the business hours, in minutes after midnight, after open
+     * @return The positions of the countries in business hours
+     */
+    public BitSet inBusinessHours(Instant now, int open, int close) {
+        BitSet result = new BitSet(offsetsByCountry.length);
+        BitSet inHours = new BitSet(offsetsByCountry.length);
+        LocalDate utcDate = LocalDate.ofInstant(now, ZoneOffset.UTC);
+        int utcMinute = (int) Math.floorMod(now.getEpochSecond() / 60, (long) MINUTES_PER_DAY);
+        // local time = UTC time + offset, so with offsets from -12 to +14 hours the local date is the UTC date, the
+        // day before or the day after; for each of these days, the offsets in business hours form one range
+        for (int day = -1; day <= 1; day++) {
+            inHours.clear();
+            addWithOffsetBetween(open - utcMinute + day * MINUTES_PER_DAY, close - utcMinute + day * MINUTES_PER_DAY,
+                    inHours);
+            int localDay = 1 << utcDate.plusDays(day).getDayOfWeek().ordinal();
+            for (int c = inHours.nextSetBit(0); c >= 0; c = inHours.nextSetBit(c + 1)) {
+                if ((weekendDays[c] & localDay) == 0) {
+                    result.set(c);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void addWithOffsetBetween(int from, int to, BitSet result) {
+        for (int i = firstAtLeast(from); i < offsets.length && offsets[i] < to; i++) {
+            result.set(countries[i]);
+        }
+    }
+
+    /**
+     * @return The index of the first entry with an offset of at least the given one
+     */
+    private int firstAtLeast(int offset) {
+        int low = 0;
+        int high = offsets.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (offsets[middle] < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int weekendDays(String startOfWeek) {
+        DayOfWeek first = switch (startOfWeek != null ? startOfWeek : "monday") {
+            case "sunday" -> DayOfWeek.SUNDAY;
+            case "saturday" -> DayOfWeek.SATURDAY;
+            default -> DayOfWeek.MONDAY;
+        };
+        return 1 << first.minus(1).ordinal() | 1 << first.minus(2).ordinal();
+    }
+}
@@ -0,0 +1,51 @@
+package ie.tcd.scss.countryinfo.timezone;
+
+import java.time.ZoneOffset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the time zones of Country.getTimezones(), which the API returns as UTC offsets like "UTC", "UTC+01:00" or
+ * "UTC-03:30". Some use the Unicode minus sign (U+2212) instead of the hyphen.
+ */
+public final class UtcOffsets {
+
+    /**
+     * Returned for time zones that can't be parsed.
+     */
+    public static final int NO_OFFSET = Integer.MIN_VALUE;
+
+    // the range of offsets in use, UTC-12:00 to UTC+14:00, in minutes
+    static final int MIN_OFFSET = -12 * 60;
+    static final int MAX_OFFSET = 14 * 60;
+
+    private static final Pattern UTC_OFFSET = Pattern.compile("UTC(?:([+\\-\u2212])(\\d{2}):(\\d{2}))?");
+
+    private UtcOffsets() {
+    }
+
+    /**
+     * @param timezone A time zone as returned by the API, e.g. "UTC+05:30"
+     * @return The offset in minutes, or NO_OFFSET if it can't be parsed or is out of range
+     */
+    public static int parse(String timezone) {
+        Matcher matcher = timezone != null ? UTC_OFFSET.matcher(timezone.trim()) : null;
+        if (matcher == null || !matcher.matches()) {
+            return NO_OFFSET;
+        }
+        if (matcher.group(1) == null) {
+            return 0;
+        }
+        int minutes = Integer.parseInt(matcher.group(2)) * 60 + Integer.parseInt(matcher.group(3));
+        int offset = matcher.group(1).equals("+") ? minutes : -minutes;
+        return offset >= MIN_OFFSET && offset <= MAX_OFFSET ? offset : NO_OFFSET;
+    }
+
+    /**
+     * @param offset An offset in minutes
+     * @return The offset in the format of the API, e.g. "UTC+05:30", or "UTC" for 0
+     */
+    public static String format(int offset) {
+        return offset == 0 ? "UTC" : "UTC" + ZoneOffset.ofTotalSeconds(offset * 60).getId();
+    }
+}
@@ -0,0 +1,41 @@
+package ie.tcd.scss.countryinfo.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Starts the "countryinfo.serialize" observation right before a response body is written by a message converter
+ * (e.g. Jackson). It is stopped by the ServerTimingFilter once the body has been written.
+ */
+@ControllerAdvice
+public class SerializationObservationAdvice implements ResponseBodyAdvice<Object> {
+
+    private final ObservationRegistry observationRegistry;
+
+    public SerializationObservationAdvice(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        ServerTiming timing = ServerTiming.current();
+        if (timing != null) {
+            timing.startSerialization(Observation.start("countryinfo.serialize", observationRegistry));
+        }
+        return body;
+    }
+}
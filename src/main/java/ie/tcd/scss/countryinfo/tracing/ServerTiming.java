@@ -0,0 +1,95 @@
+package ie.tcd.scss.countryinfo.tracing;
+
+import io.micrometer.observation.Observation;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Collects how long each stage of a request took, for its Server-Timing header (see
+ * https://www.w3.org/TR/server-timing/). The collector of the request being handled is bound to the handling thread,
+ * so stages running on other threads (e.g. the batch lookups) are not included.
+ */
+public class ServerTiming {
+
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+
+    private final long start = System.nanoTime();
+    private final Map<String, Stage> stages = new LinkedHashMap<>(); // in the order they first completed
+    private long handlerEnd;
+    private Observation serialization;
+
+    static ServerTiming bind() {
+        ServerTiming timing = new ServerTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return The collector of the request handled by the current thread, or null if there is none
+     */
+    public static ServerTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Adds the duration of a stage. Stages that run several times, e.g. upstream calls, are added up.
+     *
+     * @param name The name of the stage
+     * @param nanos The duration of this run of the stage
+     */
+    public synchronized void record(String name, long nanos) {
+        stages.computeIfAbsent(name, n -> new Stage()).add(nanos);
+    }
+
+    /**
+     * Marks the end of the handler and the start of writing the response body.
+     *
+     * @param observation The observation of the serialization, stopped when the response is committed
+     */
+    synchronized void startSerialization(Observation observation) {
+        handlerEnd = System.nanoTime();
+        serialization = observation;
+    }
+
+    synchronized void stopSerialization() {
+        if (serialization != null) {
+            serialization.stop();
+            serialization = null;
+        }
+    }
+
+    /**
+     * @return The value of the Server-Timing header, e.g. "upstream;desc=\"2 calls\";dur=41.3, total;dur=45.0"
+     */
+    synchronized String toHeaderValue() {
+        StringJoiner value = new StringJoiner(", ");
+        if (handlerEnd != 0) {
+            value.add(metric("handler", 1, handlerEnd - start));
+        }
+        stages.forEach((name, stage) -> value.add(metric(name, stage.count, stage.nanos)));
+        value.add(metric("total", 1, System.nanoTime() - start));
+        return value.toString();
+    }
+
+    private static String metric(String name, int count, long nanos) {
+        String desc = count > 1 ? ";desc=\"" + count + " calls\"" : "";
+        return name + desc + String.format(Locale.ROOT, ";dur=%.1f", nanos / 1e6);
+    }
+
+    private static class Stage {
+        private int count;
+        private long nanos;
+
+        void add(long nanos) {
+            this.count++;
+            this.nanos += nanos;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package ie.tcd.scss.countryinfo.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Adds a Server-Timing header with the duration of each stage to every response, e.g.
+ * "Server-Timing: handler;dur=48.2, upstream;dur=41.3, deserialize;dur=3.1, serialize;dur=0.4, total;dur=48.9".
+ *
+ * The body is not held back: it goes straight to the servlet container, which only commits the response once its
+ * buffer (8 KiB by default) is full or the body is flushed. The header is set right before that can happen, so that
+ * it includes the time spent writing bodies that fit into the buffer, which message converters flush once they are
+ * done; for bigger bodies it shows the stages up to the write that fills the buffer.
+ *
+ * Streamed and binary responses (the NDJSON streams, the export and the images) are not timed at all: they are
+ * written by the application itself, in chunks, so the header would only ever show the stages up to the first chunk.
+ */
+@Component
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String SERVER_TIMING = "Server-Timing";
+
+    private static final List<PathPattern> UNTIMED = Stream.of(
+                    "/countries/export", "/countries/*/mostPopulous/stream", "/countries/*/images/*")
+            .map(PathPatternParser.defaultInstance::parse)
+            .toList();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        return UNTIMED.stream().anyMatch(pattern -> pattern.matches(path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ServerTiming timing = ServerTiming.bind();
+        TimingResponse timingResponse = new TimingResponse(response, timing);
+        try {
+            chain.doFilter(request, timingResponse);
+        } finally {
+            timingResponse.finish();
+            ServerTiming.unbind();
+        }
+    }
+
+    /**
+     * Sets the header before the response is committed: when the body is flushed, when the next write may fill the
+     * container's buffer, or when the request leaves the filter. Writes pass straight through.
+     */
+    private static class TimingResponse extends HttpServletResponseWrapper {
+
+        private final ServerTiming timing;
+        private volatile boolean headerSet; // async bodies are written on another thread
+        private long written;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        TimingResponse(HttpServletResponse response, ServerTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            if (outputStream == null) {
+                outputStream = new TimingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            setTimingHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            written = 0;
+        }
+
+        @Override
+        public void reset() {
+            super.reset(); // also removes the header
+            headerSet = false;
+            written = 0;
+        }
+
+        /**
+         * Sets the header if nothing did so yet, and writes what is left in the writer.
+         */
+        void finish() throws IOException {
+            setTimingHeader();
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        /**
+         * Sets the header, unless that already happened or the response is already committed. Characters still in
+         * the writer's encoder are not part of the response yet, so they don't need to be flushed first.
+         */
+        synchronized void setTimingHeader() {
+            if (headerSet) {
+                return;
+            }
+            headerSet = true;
+            timing.stopSerialization();
+            if (!isCommitted()) {
+                setHeader(SERVER_TIMING, timing.toHeaderValue());
+            }
+        }
+
+        private class TimingOutputStream extends ServletOutputStream {
+
+            private final ServletOutputStream out;
+
+            TimingOutputStream(ServletOutputStream out) {
+                this.out = out;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                beforeWrite(1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                beforeWrite(length);
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                setTimingHeader();
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                setTimingHeader();
+                out.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return out.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                out.setWriteListener(writeListener);
+            }
+
+            private void beforeWrite(int length) {
+                if (!headerSet) {
+                    written += length;
+                    if (written >= getBufferSize()) {
+                        setTimingHeader(); // this write may commit, the header will miss the rest of the serialization
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ie.tcd.scss.countryinfo.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the duration of every stage observed while handling a request to the request's Server-Timing header: the
+ * "countryinfo.*" observations of the application (named without the prefix) and the upstream calls made with the
+ * RestTemplate (named "upstream").
+ */
+@Component
+public class ServerTimingObservationHandler implements ObservationHandler<Observation.Context> {
+
+    private static final String STAGE_PREFIX = "countryinfo.";
+    private static final String CLIENT_REQUESTS = "http.client.requests";
+
+    @Override
+    public void onStart(Observation.Context context) {
+        if (ServerTiming.current() != null && stageOf(context) != null) {
+            context.put(StartTime.class, new StartTime(System.nanoTime()));
+        }
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        StartTime startTime = context.get(StartTime.class);
+        ServerTiming timing = ServerTiming.current();
+        if (startTime != null && timing != null) {
+            timing.record(stageOf(context), System.nanoTime() - startTime.nanos());
+        }
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return true;
+    }
+
+    private static String stageOf(Observation.Context context) {
+        String name = context.getName();
+        if (name == null) {
+            return null;
+        }
+        if (name.startsWith(STAGE_PREFIX)) {
+            return name.substring(STAGE_PREFIX.length());
+        }
+        return name.equals(CLIENT_REQUESTS) ? "upstream" : null;
+    }
+
+    private record StartTime(long nanos) {
+    }
+}
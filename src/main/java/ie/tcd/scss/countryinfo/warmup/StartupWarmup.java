@@ -0,0 +1,194 @@
+package ie.tcd.scss.countryinfo.warmup;
+
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import ie.tcd.scss.countryinfo.service.CountryDataset;
+import ie.tcd.scss.countryinfo.service.CountrySnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Warms up a fresh instance before it takes traffic, so that the first requests after a deploy don't all miss and
+ * pile onto the restcountries API. Spring Boot runs this after the web server has started but before it reports the
+ * instance as ready (/actuator/health/readiness stays OUT_OF_SERVICE until all runners are done).
+ *
+ * The warm-up has three phases, each of which logs how long it took:
+ * <ol>
+ *     <li>dataset: loads the data set and builds its indexes (name lookup, autocomplete, rollups);</li>
+ *     <li>precompress: compresses the /countries/export body once per precompressed encoding;</li>
+ *     <li>replay: sends a sample of recorded requests (countryinfo.warmup.requests) to the local server, round after
+ *     round, to JIT-compile the hot paths, until the budget (countryinfo.warmup.replay-budget-ms) is used up.</li>
+ * </ol>
+ * A failing phase is logged and skipped; the instance then starts cold rather than not at all. The last two phases
+ * need the local web server and are skipped without one (e.g. in mock MVC tests).
+ */
+@Component
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private final CountryDataset dataset;
+    private final CountryInfoProperties properties;
+    private final ResourceLoader resourceLoader;
+    private final Environment environment;
+
+    public StartupWarmup(CountryDataset dataset, CountryInfoProperties properties, ResourceLoader resourceLoader,
+                         Environment environment) {
+        this.dataset = dataset;
+        this.properties = properties;
+        this.resourceLoader = resourceLoader;
+        this.environment = environment;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        CountryInfoProperties.Warmup settings = properties.getWarmup();
+        if (!settings.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        loadDataset();
+
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (port != null && port > 0) {
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofMillis(settings.getRequestTimeoutMs()))
+                    .build();
+            String base = "http://localhost:" + port;
+            precompress(client, base);
+            replay(client, base);
+        }
+        log.info("Warm-up finished in {} ms", millisSince(start));
+    }
+
+    private void loadDataset() {
+        long start = System.nanoTime();
+        try {
+            CountrySnapshot snapshot = dataset.getSnapshot();
+            log.info("Warm-up phase dataset: {} countries (version {}) loaded and indexed in {} ms",
+                    snapshot.getRecords().size(), snapshot.getVersion(), millisSince(start));
+        } catch (RestClientException e) {
+            log.warn("Warm-up phase dataset failed after {} ms, the first request will load it",
+                    millisSince(start), e);
+        }
+    }
+
+    private void precompress(HttpClient client, String base) {
+        long start = System.nanoTime();
+        List<String> encodings = properties.getCompression().getPrecompressedEncodings();
+        int compressed = 0;
+        for (String encoding : encodings) {
+            HttpRequest request = requestBuilder(base + "/countries/export")
+                    .header("Accept-Encoding", encoding)
+                    .GET()
+                    .build();
+            if (send(client, request)) {
+                compressed++;
+            }
+        }
+        log.info("Warm-up phase precompress: {} of {} export encodings compressed in {} ms",
+                compressed, encodings.size(), millisSince(start));
+    }
+
+    private void replay(HttpClient client, String base) {
+        CountryInfoProperties.Warmup settings = properties.getWarmup();
+        List<HttpRequest> requests;
+        try {
+            requests = readRequests(base);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Warm-up phase replay skipped, could not read {}", settings.getRequests(), e);
+            return;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + Duration.ofMillis(settings.getReplayBudgetMs()).toNanos();
+        int rounds = 0;
+        int failed = 0;
+        while (rounds < settings.getReplayRounds() && System.nanoTime() < deadline
+                && !Thread.currentThread().isInterrupted()) {
+            for (HttpRequest request : requests) {
+                if (!send(client, request)) {
+                    failed++;
+                }
+            }
+            rounds++;
+        }
+        log.info("Warm-up phase replay: {} rounds of {} requests ({} failed) in {} ms",
+                rounds, requests.size(), failed, millisSince(start));
+    }
+
+    /**
+     * Reads the recorded requests, e.g. "GET /countries/autocomplete?prefix=g" or
+     * "POST /countries/batch {"queries":["DE"]}". Empty lines and lines starting with # are ignored.
+     */
+    private List<HttpRequest> readRequests(String base) throws IOException {
+        Resource resource = resourceLoader.getResource(properties.getWarmup().getRequests());
+        List<HttpRequest> requests = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(" ", 3);
+                if (parts.length < 2) {
+                    throw new IllegalArgumentException("Not a request: " + line);
+                }
+                HttpRequest.Builder builder = requestBuilder(base + parts[1]);
+                if (parts.length == 3) {
+                    builder.header("Content-Type", "application/json");
+                    builder.method(parts[0], HttpRequest.BodyPublishers.ofString(parts[2]));
+                } else {
+                    builder.method(parts[0], HttpRequest.BodyPublishers.noBody());
+                }
+                requests.add(builder.build());
+            }
+        }
+        return requests;
+    }
+
+    private HttpRequest.Builder requestBuilder(String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(properties.getWarmup().getRequestTimeoutMs()));
+    }
+
+    /**
+     * @return true if the request was answered with a 2xx status
+     */
+    private static boolean send(HttpClient client, HttpRequest request) {
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() / 100 == 2;
+        } catch (IOException e) {
+            log.debug("Warm-up request {} failed", request.uri(), e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -1,13 +1,46 @@
 package ie.tcd.scss.countryinfo;
 
+import ie.tcd.scss.countryinfo.upstream.FakeUpstreamServer;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
 class CountryinfoApplicationTests {
 
+    // the warm-up loads the data set at startup
+    private static final FakeUpstreamServer upstream = FakeUpstreamServer.start();
+
+    @DynamicPropertySource
+    static void upstreamProperties(DynamicPropertyRegistry registry) {
+        registry.add("countryinfo.upstream.base-url", upstream::getBaseUrl);
+        // the flags are on third-party hosts, which the fake upstream doesn't stand in for
+        registry.add("countryinfo.images.prefetch", () -> "");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.close();
+    }
+
+    @Autowired
+    private ApplicationAvailability availability;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void startup_shouldLoadDatasetBeforeReportingReady() {
+        assertThat(availability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+        assertThat(upstream.getRequestCount()).isPositive();
+    }
+
 }
@@ -0,0 +1,76 @@
+package ie.tcd.scss.countryinfo.aggregation;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.domain.Gini;
+import ie.tcd.scss.countryinfo.query.QueryExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CountryColumnsTest {
+
+    private static final List<Country> COUNTRIES = List.of(
+            country("Europe", 5_000_000, 31.4, "English", "Irish"), // 0, Ireland
+            country("Europe", 83_000_000, 31.9, "German"),          // 1, Germany
+            country("Europe", 400_000, null, "English", "Maltese"), // 2, Malta, no Gini
+            country("Africa", 59_000_000, 63.0, "English", "Zulu"), // 3, South Africa
+            country("Americas", null, null, "Spanish"));            // 4, no population, no Gini
+
+    private final CountryColumns columns = CountryColumns.of(COUNTRIES);
+    private final QueryExecutor executor = QueryExecutor.sequential();
+
+    @Test
+    public void rollup_shouldCountCountriesInEveryGroupTheyBelongTo() {
+        Rollup byLanguage = columns.rollup(GroupBy.LANGUAGE, c -> true, executor);
+
+        assertThat(byLanguage.toMap(AggregateFunction.COUNT, null)).containsExactly(
+                Map.entry("English", 3.0), Map.entry("German", 1.0), Map.entry("Irish", 1.0),
+                Map.entry("Maltese", 1.0), Map.entry("Spanish", 1.0), Map.entry("Zulu", 1.0));
+        assertThat(byLanguage.toMap(AggregateFunction.SUM, Metric.POPULATION))
+                .containsEntry("English", 64_400_000.0)
+                .doesNotContainKey("Spanish"); // no country with a population speaks it
+    }
+
+    @Test
+    public void rollup_shouldSkipMissingValues() {
+        Rollup byRegion = columns.rollup(GroupBy.REGION, c -> true, executor);
+
+        assertThat(byRegion.toMap(AggregateFunction.AVG, Metric.GINI)).containsExactly(
+                Map.entry("Africa", 63.0), Map.entry("Europe", (31.4 + 31.9) / 2));
+        assertThat(byRegion.toMap(AggregateFunction.MIN, Metric.POPULATION)).containsExactly(
+                Map.entry("Africa", 59_000_000.0), Map.entry("Europe", 400_000.0));
+        assertThat(byRegion.toMap(AggregateFunction.COUNT, null)).containsEntry("Americas", 1.0);
+    }
+
+    @Test
+    public void rollup_shouldOnlyIncludeFilteredCountries() {
+        Rollup european = columns.rollup(GroupBy.LANGUAGE, columns.memberOf(GroupBy.REGION, "europe"), executor);
+
+        assertThat(european.toMap(AggregateFunction.COUNT, null)).containsExactly(
+                Map.entry("English", 2.0), Map.entry("German", 1.0), Map.entry("Irish", 1.0),
+                Map.entry("Maltese", 1.0));
+        assertThat(columns.rollup(GroupBy.REGION, columns.memberOf(GroupBy.REGION, "Oceania"), executor)
+                .toMap(AggregateFunction.COUNT, null)).isEmpty();
+    }
+
+    private static Country country(String region, Integer population, Double gini, String... languages) {
+        Country country = new Country();
+        country.setRegion(region);
+        country.setPopulation(population);
+        if (gini != null) {
+            Gini coefficient = new Gini();
+            coefficient.setValue("2019", gini);
+            country.setGini(coefficient);
+        }
+        Map<String, String> languagesByCode = new LinkedHashMap<>();
+        for (String language : languages) {
+            languagesByCode.put(language.substring(0, 3).toLowerCase(), language);
+        }
+        country.setLanguages(languagesByCode);
+        return country;
+    }
+}
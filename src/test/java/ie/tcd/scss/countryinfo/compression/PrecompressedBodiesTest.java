@@ -0,0 +1,109 @@
+package ie.tcd.scss.countryinfo.compression;
+
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrecompressedBodiesTest {
+
+    private final ContentEncoder gzip = new GzipEncoder();
+
+    // stands in for a coding the JDK has no encoder for
+    private final ContentEncoder brotli = new ContentEncoder() {
+        @Override
+        public String getName() {
+            return "br";
+        }
+
+        @Override
+        public byte[] encode(byte[] body) {
+            return body;
+        }
+    };
+
+    @Test
+    public void negotiate_shouldPickAcceptedCoding() {
+        PrecompressedBodies bodies = bodies("gzip");
+
+        assertThat(bodies.negotiate("gzip")).isSameAs(gzip);
+        assertThat(bodies.negotiate("deflate, GZIP;q=0.5")).isSameAs(gzip);
+        assertThat(bodies.negotiate("gzip, deflate, br")).isSameAs(gzip);
+    }
+
+    @Test
+    public void negotiate_shouldRejectCodingWithQualityZero() {
+        PrecompressedBodies bodies = bodies("gzip");
+
+        assertThat(bodies.negotiate("gzip;q=0")).isNull();
+        assertThat(bodies.negotiate("gzip; q=0.000, deflate")).isNull();
+        assertThat(bodies.negotiate("*;q=0")).isNull();
+    }
+
+    @Test
+    public void negotiate_shouldAcceptAnyCodingForWildcard() {
+        PrecompressedBodies bodies = bodies("gzip");
+
+        assertThat(bodies.negotiate("*")).isSameAs(gzip);
+        assertThat(bodies.negotiate("deflate, *;q=0.1")).isSameAs(gzip);
+        assertThat(bodies.negotiate("gzip;q=0, *")).isNull(); // rejected by name
+    }
+
+    @Test
+    public void negotiate_shouldIgnoreUnknownCodings() {
+        PrecompressedBodies bodies = bodies("gzip");
+
+        assertThat(bodies.negotiate(null)).isNull();
+        assertThat(bodies.negotiate("")).isNull();
+        assertThat(bodies.negotiate("identity")).isNull();
+        assertThat(bodies.negotiate("deflate, compress, zstd")).isNull();
+    }
+
+    @Test
+    public void negotiate_shouldPreferConfiguredOrder() {
+        PrecompressedBodies bodies = bodies("br", "gzip", "unknown"); // no encoder for "unknown"
+
+        assertThat(bodies.negotiate("gzip, br")).isSameAs(brotli);
+        assertThat(bodies.negotiate("gzip, br;q=0")).isSameAs(gzip);
+        assertThat(bodies.negotiate("unknown")).isNull();
+    }
+
+    @Test
+    public void get_shouldCompressOncePerVersion() throws IOException {
+        PrecompressedBodies bodies = bodies("gzip");
+        AtomicInteger built = new AtomicInteger();
+
+        byte[] first = bodies.get("export", 1, gzip, () -> body("v1", built));
+        byte[] again = bodies.get("export", 1, gzip, () -> body("v1", built));
+        byte[] second = bodies.get("export", 2, gzip, () -> body("v2", built));
+
+        assertThat(again).isSameAs(first);
+        assertThat(built).hasValue(2);
+        assertThat(gunzip(first)).isEqualTo("v1");
+        assertThat(gunzip(second)).isEqualTo("v2");
+    }
+
+    private PrecompressedBodies bodies(String... encodings) {
+        CountryInfoProperties properties = new CountryInfoProperties();
+        properties.getCompression().setPrecompressedEncodings(List.of(encodings));
+        return new PrecompressedBodies(List.of(gzip, brotli), properties);
+    }
+
+    private static byte[] body(String text, AtomicInteger built) {
+        built.incrementAndGet();
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
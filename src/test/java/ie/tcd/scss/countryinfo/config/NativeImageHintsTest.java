@@ -0,0 +1,45 @@
+package ie.tcd.scss.countryinfo.config;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NativeImageHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @Test
+    public void registerHints_shouldCoverEveryDomainClass() throws ClassNotFoundException {
+        new NativeImageHints.Registrar().registerHints(hints, getClass().getClassLoader());
+
+        // Every class of the domain package, so that a new one can't be forgotten
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter((reader, factory) -> true);
+        Set<BeanDefinition> domainClasses = scanner.findCandidateComponents(Country.class.getPackageName());
+        assertThat(domainClasses).isNotEmpty();
+
+        for (BeanDefinition domainClass : domainClasses) {
+            Class<?> type = Class.forName(domainClass.getBeanClassName());
+            assertThat(RuntimeHintsPredicates.reflection().onType(type)
+                    .withMemberCategories(MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS))
+                    .as(type.getName())
+                    .accepts(hints);
+        }
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(Country.class, "setName").invoke()).accepts(hints);
+    }
+
+    @Test
+    public void registerHints_shouldIncludeWarmupRequests() {
+        new NativeImageHints.Registrar().registerHints(hints, getClass().getClassLoader());
+
+        assertThat(RuntimeHintsPredicates.resource().forResource("warmup/requests.txt")).accepts(hints);
+    }
+}
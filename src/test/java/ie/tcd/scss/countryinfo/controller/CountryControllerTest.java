@@ -1,21 +1,58 @@
 package ie.tcd.scss.countryinfo.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.jayway.jsonpath.JsonPath;
+import ie.tcd.scss.countryinfo.upstream.FakeUpstreamServer;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 public class CountryControllerTest {
 
+    // serves recorded restcountries responses, so that the tests don't depend on the real API
+    private static final FakeUpstreamServer upstream = FakeUpstreamServer.start();
+
+    @DynamicPropertySource
+    static void upstreamProperties(DynamicPropertyRegistry registry) {
+        registry.add("countryinfo.upstream.base-url", upstream::getBaseUrl);
+        // the flags are on third-party hosts, which the fake upstream doesn't stand in for
+        registry.add("countryinfo.images.prefetch", () -> "");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.close();
+    }
+
     @LocalServerPort
     private int port;
 
@@ -75,6 +112,447 @@ public class CountryControllerTest {
 
     }
 
+    @Test
+    public void getGermanyWithFields_shouldReturnOnlySelectedFields() {
+        // Given the country name "Germany" and a selection of fields
+        String countryName = "Germany";
+
+        // When making a GET request to /countries/Germany?fields=name.common,capital
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/" + countryName + "?fields=name.common,capital", String.class);
+
+        // Then the response should be 200 OK and contain only the selected fields
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        Map<String, Object> country = JsonPath.parse(response.getBody()).read("$");
+        Map<String, Object> name = JsonPath.parse(response.getBody()).read("$.name");
+        List<String> capitals = JsonPath.parse(response.getBody()).read("$.capital");
+
+        assertThat(country).containsOnlyKeys("name", "capital");
+        assertThat(name).containsOnlyKeys("common");
+        assertThat(name.get("common")).isEqualTo("Germany");
+        assertThat(capitals).containsExactly("Berlin");
+    }
+
+    @Test
+    public void getGermanyAsCbor_shouldReturnCbor() throws IOException {
+        // When asking for CBOR
+        ResponseEntity<byte[]> response = getBinary("/countries/Germany", "application/cbor");
+
+        // Then the response should be CBOR encoding the same country as the JSON response
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.parseMediaType("application/cbor"));
+        JsonNode country = new ObjectMapper(new CBORFactory()).readTree(response.getBody());
+        assertThat(country.path("name").path("common").asText()).isEqualTo("Germany");
+        assertThat(country.path("capital").get(0).asText()).isEqualTo("Berlin");
+        assertThat(country.path("population").asInt()).isEqualTo(83240525);
+    }
+
+    @Test
+    public void getGermanyAsSmile_shouldReturnSmile() throws IOException {
+        // When asking for Smile
+        ResponseEntity<byte[]> response = getBinary("/countries/Germany", "application/x-jackson-smile");
+
+        // Then the response should be Smile, which starts with the ":)\n" header
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.parseMediaType("application/x-jackson-smile"));
+        assertThat(response.getBody()).startsWith(':', ')', '\n');
+        JsonNode country = new ObjectMapper(new SmileFactory()).readTree(response.getBody());
+        assertThat(country.path("name").path("common").asText()).isEqualTo("Germany");
+        assertThat(country.path("capital").get(0).asText()).isEqualTo("Berlin");
+    }
+
+    @Test
+    public void getGermanyAsCborWithFields_shouldReturnOnlySelectedFields() throws IOException {
+        // When asking for CBOR and a selection of fields
+        ResponseEntity<byte[]> response = getBinary("/countries/Germany?fields=name.common,capital", "application/cbor");
+
+        // Then the CBOR response should be projected like the JSON response
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.parseMediaType("application/cbor"));
+        JsonNode country = new ObjectMapper(new CBORFactory()).readTree(response.getBody());
+        assertThat(country.fieldNames()).toIterable().containsExactlyInAnyOrder("name", "capital");
+        assertThat(country.path("name").fieldNames()).toIterable().containsExactly("common");
+        assertThat(country.path("name").path("common").asText()).isEqualTo("Germany");
+    }
+
+    @Test
+    public void getIrelandWithFields_shouldReturnNativeNamesInAllLanguages() {
+        // When making a GET request for the native names of Ireland
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/Ireland?fields=name.nativeName", String.class);
+
+        // Then the response should contain the native names keyed by language
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(JsonPath.parse(response.getBody()).read("$.name.nativeName.gle.common", String.class)).isEqualTo("Éire");
+        assertThat(JsonPath.parse(response.getBody()).read("$.name.nativeName.eng.official", String.class)).isEqualTo("Republic of Ireland");
+    }
+
+    @Test
+    public void autocomplete_withNativeNamePrefix_shouldSuggestCountry() {
+        // Given the prefix of South Africa's Zulu name "Ningizimu Afrika"
+        String prefix = "ningizimu";
+
+        // When making a GET request to /countries/autocomplete?prefix=ningizimu
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/autocomplete?prefix=" + prefix, String.class);
+
+        // Then South Africa should be suggested
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<String> suggestions = JsonPath.parse(response.getBody()).read("$");
+        assertThat(suggestions).containsExactly("South Africa");
+    }
+
+    @Test
+    public void getSimilarToIreland_shouldReturnEuroCountriesFirst() {
+        // When making a GET request to /countries/Ireland/similar?limit=2
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/Ireland/similar?limit=2", String.class);
+
+        // Then the response should be 200 OK and contain the two other European countries using the euro
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<String> codes = JsonPath.parse(response.getBody()).read("$[*].code");
+        List<Number> scores = JsonPath.parse(response.getBody()).read("$[*].score");
+        assertThat(codes).containsExactlyInAnyOrder("FRA", "DEU");
+        assertThat(scores.get(0).doubleValue()).isGreaterThanOrEqualTo(scores.get(1).doubleValue());
+    }
+
+    @Test
+    public void getSimilarToInvalidCountry_shouldReturnNotFound() {
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/InvalidCountry/similar", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void exportCountries_shouldWriteOneJsonObjectPerLine() {
+        // When making a GET request to /countries/export
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/export", String.class);
+
+        // Then every line should be one country, ordered by code
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        List<String> lines = response.getBody().lines().toList();
+        assertThat(lines).extracting(line -> JsonPath.parse(line).<String>read("$.cca3"))
+                .containsExactly("BOL", "DEU", "FRA", "IRL", "RUS", "ZAF");
+    }
+
+    @Test
+    public void exportCountriesWithGzip_shouldReturnPrecompressedBody() throws IOException, InterruptedException {
+        // TestRestTemplate decompresses transparently, so the raw response is read with the JDK client
+        HttpClient client = HttpClient.newHttpClient();
+        URI export = URI.create("http://localhost:" + port + "/countries/export");
+        HttpResponse<byte[]> plain = client.send(HttpRequest.newBuilder(export).build(), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> gzipped = client.send(HttpRequest.newBuilder(export).header(HttpHeaders.ACCEPT_ENCODING, "br;q=1, gzip;q=0.8").build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        // Then the gzip response should announce its coding and decompress to the plain export
+        assertThat(plain.statusCode()).isEqualTo(200);
+        assertThat(plain.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+        assertThat(gzipped.statusCode()).isEqualTo(200);
+        assertThat(gzipped.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        assertThat(gzipped.headers().allValues(HttpHeaders.VARY)).anyMatch(vary -> vary.contains(HttpHeaders.ACCEPT_ENCODING));
+        assertThat(gzipped.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue(MediaType.APPLICATION_NDJSON_VALUE);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.body()))) {
+            assertThat(in.readAllBytes()).isEqualTo(plain.body());
+        }
+        assertThat(gzipped.body().length).isLessThan(plain.body().length);
+    }
+
+    @Test
+    public void exportCountriesWithRejectedGzip_shouldReturnUncompressedBody() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/countries/export")).header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity").build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+        assertThat(new String(response.body(), StandardCharsets.UTF_8).lines()).hasSize(6);
+    }
+
+    @Test
+    public void streamMostPopulous_shouldWriteCountriesByPopulation() {
+        // When making a GET request to /countries/an/mostPopulous/stream
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/an/mostPopulous/stream", String.class);
+
+        // Then the countries containing "an" should follow each other in descending order of population
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<String> names = response.getBody().lines()
+                .map(line -> JsonPath.parse(line).<String>read("$.name.common"))
+                .toList();
+        assertThat(names).containsExactly("Germany", "France", "Ireland");
+    }
+
+    @Test
+    public void streamMostPopulousAsEvents_shouldWriteOneEventPerCountry() {
+        // When asking for server-sent events
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+        ResponseEntity<String> response = restTemplate.exchange("http://localhost:" + port + "/countries/an/mostPopulous/stream", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        // Then every country should be the data of its own event, each terminated by a blank line
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.TEXT_EVENT_STREAM)).isTrue();
+        String[] events = response.getBody().split("\n\n");
+        assertThat(response.getBody()).endsWith("\n\n");
+        assertThat(events).hasSize(3);
+        assertThat(events[0]).startsWith("data: ").doesNotContain("\n");
+        assertThat(JsonPath.parse(events[0].substring("data: ".length())).<String>read("$.name.common")).isEqualTo("Germany");
+    }
+
+    @Test
+    public void streamMostPopulousWithoutMatch_shouldReturnEmptyBody() {
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/zzz/mostPopulous/stream", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    public void batch_shouldResolveNamesAndCodesInQueryOrder() {
+        // Given names and codes in any case, a duplicate, an unknown name and a blank query
+        Map<String, Object> request = Map.of(
+                "queries", List.of("Ireland", "DEU", "fr", "ireland", "Narnia", " "),
+                "fields", List.of("name.common"));
+
+        // When making a POST request to /countries/batch
+        ResponseEntity<String> response = restTemplate.postForEntity("http://localhost:" + port + "/countries/batch", request, String.class);
+
+        // Then there should be one result per query, in the same order, with only the selected field
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<String> statuses = JsonPath.parse(response.getBody()).read("$.results[*].status");
+        List<String> names = JsonPath.parse(response.getBody()).read("$.results[*].country.name.common");
+        List<Object> capitals = JsonPath.parse(response.getBody()).read("$.results[*].country.capital");
+        assertThat(statuses).containsExactly("FOUND", "FOUND", "FOUND", "FOUND", "NOT_FOUND", "NOT_FOUND");
+        assertThat(names).containsExactly("Ireland", "Germany", "France", "Ireland");
+        assertThat(capitals).isEmpty();
+    }
+
+    @Test
+    public void batch_withTooManyQueries_shouldReturnBadRequest() {
+        // countryinfo.batch.max-queries is 10000
+        Map<String, Object> tooMany = Map.of("queries", Collections.nCopies(10_001, "Ireland"));
+        Map<String, Object> none = Map.of("queries", List.of());
+
+        assertThat(restTemplate.postForEntity("http://localhost:" + port + "/countries/batch", tooMany, String.class).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.postForEntity("http://localhost:" + port + "/countries/batch", none, String.class).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.postForEntity("http://localhost:" + port + "/countries/batch", Map.of("queries", Collections.nCopies(10_000, "Ireland")), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void getChanges_shouldReturnCurrentVersion() {
+        // When polling /countries/changes with the version the data set was first loaded as
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/changes?since=1", String.class);
+
+        // Then the feed should be complete and, as the fixtures don't change, empty
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Number version = JsonPath.parse(response.getBody()).read("$.version");
+        Boolean complete = JsonPath.parse(response.getBody()).read("$.complete");
+        List<Object> changes = JsonPath.parse(response.getBody()).read("$.changes");
+        assertThat(version.longValue()).isEqualTo(1);
+        assertThat(complete).isTrue();
+        assertThat(changes).isEmpty();
+    }
+
+    @Test
+    public void getChangesFromAnotherEpoch_shouldBeIncomplete() {
+        // When polling with a version from before a restart of the service, or from another instance
+        String base = "http://localhost:" + port + "/countries/changes";
+        String epoch = JsonPath.parse(restTemplate.getForObject(base, String.class)).read("$.epoch");
+        ResponseEntity<String> newer = restTemplate.getForEntity(base + "?since=7&epoch=" + epoch, String.class);
+        ResponseEntity<String> otherEpoch = restTemplate.getForEntity(base + "?since=1&epoch=other", String.class);
+
+        // Then the feed should be incomplete, so that the client invalidates its cache
+        assertThat(JsonPath.parse(newer.getBody()).<Boolean>read("$.complete")).isFalse();
+        assertThat(JsonPath.parse(otherEpoch.getBody()).<Boolean>read("$.complete")).isFalse();
+        assertThat(JsonPath.parse(restTemplate.getForObject(base + "?since=1&epoch=" + epoch, String.class))
+                .<Boolean>read("$.complete")).isTrue();
+    }
+
+    @Test
+    public void aggregateByLanguage_shouldCountEveryLanguageOfACountry() {
+        // When making a GET request to /countries/aggregate?groupBy=language&function=count&region=Europe
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/aggregate?groupBy=language&function=count&region=Europe", String.class);
+
+        // Then Ireland should count towards both English and Irish, and only European countries be included
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Map<String, Object> counts = JsonPath.parse(response.getBody()).read("$");
+        assertThat(counts).containsOnlyKeys("English", "French", "German", "Irish", "Russian");
+        assertThat(((Number) counts.get("Irish")).doubleValue()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void aggregatePopulationByRegion_shouldSumPerRegion() {
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/aggregate?groupBy=region&function=sum&metric=population", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Number africa = JsonPath.parse(response.getBody()).read("$.Africa");
+        Number europe = JsonPath.parse(response.getBody()).read("$.Europe");
+        assertThat(africa.longValue()).isEqualTo(59_308_690L);
+        assertThat(europe.longValue()).isEqualTo(4_994_724L + 67_391_582L + 83_240_525L + 144_104_080L);
+    }
+
+    @Test
+    public void aggregateWithInvalidParameters_shouldReturnBadRequest() {
+        ResponseEntity<String> badGroupBy = restTemplate.getForEntity("http://localhost:" + port + "/countries/aggregate?groupBy=planet", String.class);
+        ResponseEntity<String> badFunction = restTemplate.getForEntity("http://localhost:" + port + "/countries/aggregate?groupBy=region&function=median&metric=area", String.class);
+        ResponseEntity<String> missingMetric = restTemplate.getForEntity("http://localhost:" + port + "/countries/aggregate?groupBy=region&function=avg", String.class);
+
+        assertThat(badGroupBy.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(badFunction.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(missingMetric.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void getIreland_shouldReturnGiniByYearOnly() {
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/Ireland?fields=gini", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Map<String, Object> gini = JsonPath.parse(response.getBody()).read("$.gini");
+        assertThat(gini).containsOnlyKeys("2017");
+    }
+
+    @Test
+    public void getCountryByIrishPhoneNumber_shouldReturnIreland() {
+        // When making a GET request to /countries/dial/+353871234567
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/dial/+353871234567?fields=name.common,idd", String.class);
+
+        // Then the response should contain Ireland only
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<String> names = JsonPath.parse(response.getBody()).read("$[*].name.common");
+        assertThat(names).containsExactly("Ireland");
+    }
+
+    @Test
+    public void getCountryByRussianPhoneNumber_shouldReturnRussia() {
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/dial/0079161234567", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<String> codes = JsonPath.parse(response.getBody()).read("$[*].cca3");
+        assertThat(codes).containsExactly("RUS");
+    }
+
+    @Test
+    public void getCountryByUnknownPhoneNumber_shouldReturnNotFound() {
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/dial/+34912345678", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void getCountryByDomainName_shouldReturnCountryOfTld() {
+        // When making GET requests to /countries/tld/ with a top-level domain and a domain name
+        ResponseEntity<String> ireland = restTemplate.getForEntity("http://localhost:" + port + "/countries/tld/www.tcd.ie", String.class);
+        ResponseEntity<String> russia = restTemplate.getForEntity("http://localhost:" + port + "/countries/tld/.su?fields=cca3", String.class);
+
+        // Then both should be found by their top-level domain
+        assertThat(ireland.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<String> irelandCodes = JsonPath.parse(ireland.getBody()).read("$[*].cca3");
+        assertThat(irelandCodes).containsExactly("IRL");
+        assertThat(russia.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<String> russiaCodes = JsonPath.parse(russia.getBody()).read("$[*].cca3");
+        assertThat(russiaCodes).containsExactly("RUS");
+    }
+
+    @Test
+    public void getCountryByUnknownTld_shouldReturnNotFound() {
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/tld/.com", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void getUnknownImage_shouldReturnNotFound() {
+        // When asking for an image that isn't a flag or coat of arms, or of a country that doesn't exist
+        ResponseEntity<String> unknownImage = restTemplate.getForEntity("http://localhost:" + port + "/countries/IRL/images/map.png", String.class);
+        ResponseEntity<String> unknownCountry = restTemplate.getForEntity("http://localhost:" + port + "/countries/InvalidCountry/images/flag.png", String.class);
+
+        // Then both should be 404 Not Found, without downloading anything
+        assertThat(unknownImage.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(unknownCountry.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void getTimezonePeersOfGermany_shouldReturnFrance() {
+        // When making a GET request to /countries/Germany/timezone-peers
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/Germany/timezone-peers", String.class);
+
+        // Then France should be the only other country with UTC+01:00
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<String> peers = JsonPath.parse(response.getBody()).read("$");
+        assertThat(peers).containsExactly("France");
+    }
+
+    @Test
+    public void getLocalTimeOfGermany_shouldReturnTimeAtItsOffset() {
+        // When making a GET request to /countries/DEU/local-time
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/DEU/local-time", String.class);
+
+        // Then the response should contain the local time in its only time zone
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<String> timezones = JsonPath.parse(response.getBody()).read("$[*].timezone");
+        List<String> localTimes = JsonPath.parse(response.getBody()).read("$[*].localTime");
+        assertThat(timezones).containsExactly("UTC+01:00");
+        assertThat(localTimes.get(0)).endsWith("+01:00");
+    }
+
+    @Test
+    public void getBusinessHours_withInvalidHours_shouldReturnBadRequest() {
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/business-hours?from=17&to=9", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void getGermany_shouldReportServerTiming() {
+        // When making a GET request to /countries/Germ, which is not an exact name and so is looked up upstream
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/Germ", String.class);
+
+        // Then the Server-Timing header should break the latency down into the stages of the request
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getFirst("Server-Timing"))
+                .contains("handler;dur=", "upstream;dur=", "deserialize;dur=", "serialize;dur=", "total;dur=");
+    }
+
+    @Test
+    public void getGermanyByExactName_shouldNotCallUpstream() {
+        // When making GET requests for a name and a code that are in the data set
+        long requests = upstream.getRequestCount();
+        ResponseEntity<String> byName = restTemplate.getForEntity("http://localhost:" + port + "/countries/Germany", String.class);
+        ResponseEntity<String> byCode = restTemplate.getForEntity("http://localhost:" + port + "/countries/DEU", String.class);
+
+        // Then both should be served from the snapshot, without a call to the restcountries API
+        assertThat(JsonPath.parse(byName.getBody()).read("$.name.common", String.class)).isEqualTo("Germany");
+        assertThat(JsonPath.parse(byCode.getBody()).read("$.name.common", String.class)).isEqualTo("Germany");
+        assertThat(upstream.getRequestCount()).isEqualTo(requests);
+        assertThat(byName.getHeaders().getFirst("Server-Timing")).doesNotContain("upstream");
+    }
+
+    @Test
+    public void batchWithBigResponse_shouldReportServerTiming() {
+        // When making a request whose response is bigger than the response buffer of the server
+        Map<String, Object> batch = Map.of("queries", Collections.nCopies(100, "Ireland"));
+        ResponseEntity<String> response = restTemplate.postForEntity("http://localhost:" + port + "/countries/batch", batch, String.class);
+
+        // Then the Server-Timing header should still be set, before the response was committed
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).hasSizeGreaterThan(64 * 1024);
+        assertThat(response.getHeaders().getFirst("Server-Timing")).contains("handler;dur=", "total;dur=");
+    }
+
+    @Test
+    public void exportCountries_shouldNotReportServerTiming() {
+        // When making a GET request to /countries/export, which is streamed
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/countries/export", String.class);
+
+        // Then the response should not be held back for a Server-Timing header
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().containsKey("Server-Timing")).isFalse();
+    }
+
+    @Test
+    public void readiness_shouldBeUpAfterWarmup() {
+        // When asking for the readiness of the started application
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/actuator/health/readiness", String.class);
+
+        // Then it should be up, since the warm-up ran before the application was ready
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(JsonPath.parse(response.getBody()).read("$.status", String.class)).isEqualTo("UP");
+    }
+
     @Test
     public void getContinentsForFrance_shouldReturnEurope() {
         // Given the country name "France"
@@ -208,4 +686,10 @@ public class CountryControllerTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
-}
\ No newline at end of file
+    private ResponseEntity<byte[]> getBinary(String path, String accept) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.parseMediaType(accept)));
+        return restTemplate.exchange("http://localhost:" + port + path, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+    }
+
+}
@@ -0,0 +1,121 @@
+package ie.tcd.scss.countryinfo.controller;
+
+import ie.tcd.scss.countryinfo.upstream.FakeUpstreamServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class CountryImageControllerTest {
+
+    // serves recorded restcountries responses whose flags point at the fixture images it serves as well
+    private static final FakeUpstreamServer upstream = FakeUpstreamServer.start();
+
+    static {
+        upstream.setImagesServed(true);
+    }
+
+    @DynamicPropertySource
+    static void upstreamProperties(DynamicPropertyRegistry registry) {
+        registry.add("countryinfo.upstream.base-url", upstream::getBaseUrl);
+        // download on request only, so that the tests can count the downloads
+        registry.add("countryinfo.images.prefetch", () -> "");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.close();
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void getFlagImage_shouldReturnImageWithShortCacheLifetime() throws IOException {
+        ResponseEntity<byte[]> response = restTemplate.getForEntity(url("Ireland", "flag.png"), byte[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(fixture("flagcdn.com/w320/ie.png"));
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.IMAGE_PNG);
+        // the URL names the country, whose image may change with a refresh, so it is not cached as immutable
+        assertThat(response.getHeaders().getCacheControl())
+                .contains("max-age=3600")
+                .contains("public")
+                .doesNotContain("immutable");
+        assertThat(response.getHeaders().getETag()).isNotBlank();
+    }
+
+    @Test
+    public void getFlagImage_shouldBeDownloadedOnce() {
+        restTemplate.getForEntity(url("France", "flag.png"), byte[].class);
+        long requests = upstream.getRequestCount();
+
+        ResponseEntity<byte[]> response = restTemplate.getForEntity(url("FRA", "flag.png"), byte[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(upstream.getRequestCount()).isEqualTo(requests); // served from the image cache
+    }
+
+    @Test
+    public void getFlagImageWithMatchingETag_shouldReturnNotModified() {
+        ResponseEntity<byte[]> first = restTemplate.getForEntity(url("Germany", "flag.png"), byte[].class);
+        String etag = first.getHeaders().getETag();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<byte[]> second = restTemplate.exchange(url("Germany", "flag.png"), HttpMethod.GET,
+                new HttpEntity<>(headers), byte[].class);
+
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(second.getBody()).isNull();
+        assertThat(second.getHeaders().getETag()).isEqualTo(etag);
+        assertThat(second.getHeaders().getCacheControl()).contains("max-age=3600");
+    }
+
+    @Test
+    public void getMissingImage_shouldReturnBadGateway() {
+        // there is no fixture for the coats of arms, so the fake upstream answers 404
+        ResponseEntity<byte[]> response = restTemplate.getForEntity(url("Ireland", "coat-of-arms.png"),
+                byte[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+    }
+
+    @Test
+    public void getUnknownImage_shouldReturnNotFound() {
+        assertThat(restTemplate.getForEntity(url("Ireland", "anthem.mp3"), byte[].class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.getForEntity(url("Narnia", "flag.png"), byte[].class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private String url(String countryName, String image) {
+        return "http://localhost:" + port + "/countries/" + countryName + "/images/" + image;
+    }
+
+    private static byte[] fixture(String path) throws IOException {
+        try (InputStream in = CountryImageControllerTest.class.getResourceAsStream("/upstream/images/" + path)) {
+            assertThat(in).isNotNull();
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ie.tcd.scss.countryinfo.crac;
+
+import ie.tcd.scss.countryinfo.upstream.FakeUpstreamServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the checkpoint and restore callbacks in place, since the tests don't run on a CRaC JDK.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "countryinfo.warmup.replay-rounds=0")
+public class CheckpointRestoreSupportTest {
+
+    private static final FakeUpstreamServer upstream = FakeUpstreamServer.start();
+
+    @DynamicPropertySource
+    static void upstreamProperties(DynamicPropertyRegistry registry) {
+        registry.add("countryinfo.upstream.base-url", upstream::getBaseUrl);
+        // the flags are on third-party hosts, which the fake upstream doesn't stand in for
+        registry.add("countryinfo.images.prefetch", () -> "");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.close();
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CheckpointRestoreSupport checkpointRestoreSupport;
+
+    @Test
+    public void checkpointAndRestore_shouldCloseAndReopenTheServerSocket() throws Exception {
+        // Given a started application that has loaded the data set
+        assertThat(autocomplete().statusCode()).isEqualTo(200);
+        long upstreamRequests = upstream.getRequestCount();
+
+        // When preparing for a checkpoint, the server socket should be closed
+        checkpointRestoreSupport.beforeCheckpoint(null);
+        assertThatThrownBy(this::autocomplete).isInstanceOf(ConnectException.class);
+
+        // Then after the restore requests should be served again, from the data set loaded before the checkpoint
+        checkpointRestoreSupport.afterRestore(null);
+        HttpResponse<String> response = autocomplete();
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).contains("Germany");
+        assertThat(upstream.getRequestCount()).isEqualTo(upstreamRequests);
+    }
+
+    private HttpResponse<String> autocomplete() throws IOException, InterruptedException {
+        // a new client each time, so that no connection is kept alive across the checkpoint
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + port + "/countries/autocomplete?prefix=ger")).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,67 @@
+package ie.tcd.scss.countryinfo.image;
+
+import ie.tcd.scss.countryinfo.image.ImageCache.CachedImage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImageCacheTest {
+
+    @Test
+    public void put_shouldEvictLeastRecentlyUsedImages() {
+        ImageCache cache = new ImageCache(300);
+        cache.put("a", "image/png", new byte[100], "a");
+        cache.put("b", "image/png", new byte[100], "b");
+        cache.put("c", "image/png", new byte[100], "c");
+        cache.get("a"); // b is now the least recently used
+
+        cache.put("d", "image/png", new byte[150], "d");
+
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isNull();
+        assertThat(cache.get("d")).isNotNull();
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.bytes()).isEqualTo(250);
+    }
+
+    @Test
+    public void put_shouldNotCacheImagesLargerThanTheCache() {
+        ImageCache cache = new ImageCache(100);
+        cache.put("a", "image/png", new byte[50], "a");
+
+        CachedImage large = cache.put("large", "image/png", new byte[101], "large");
+
+        assertThat(large.length()).isEqualTo(101);
+        assertThat(cache.get("large")).isNull();
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.bytes()).isEqualTo(50);
+    }
+
+    @Test
+    public void put_shouldReplaceImageOfSameUrl() {
+        ImageCache cache = new ImageCache(1000);
+        cache.put("a", "image/png", new byte[100], "old");
+        cache.put("a", "image/png", new byte[200], "new");
+
+        assertThat(cache.get("a").etag()).isEqualTo("new");
+        assertThat(cache.bytes()).isEqualTo(200);
+    }
+
+    @Test
+    public void content_shouldBeReadableByConcurrentResponses() {
+        ImageCache cache = new ImageCache(1000);
+        CachedImage image = cache.put("a", "image/png", new byte[] {1, 2, 3}, "a");
+
+        ByteBuffer first = image.content();
+        first.get(new byte[3]);
+        ByteBuffer second = cache.get("a").content();
+
+        assertThat(second.isDirect()).isTrue();
+        assertThat(second.isReadOnly()).isTrue();
+        assertThat(second.remaining()).isEqualTo(3);
+        assertThat(second.get(0)).isEqualTo((byte) 1);
+    }
+}
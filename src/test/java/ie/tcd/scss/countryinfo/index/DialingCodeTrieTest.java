@@ -0,0 +1,70 @@
+package ie.tcd.scss.countryinfo.index;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.domain.IDD;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DialingCodeTrieTest {
+
+    private static final List<Country> COUNTRIES = List.of(
+            country("+3", "53"),                // 0, Ireland
+            country("+3", "3"),                 // 1, France
+            country("+1", "201", "202", "684"), // 2, United States (some area codes)
+            country("+1", "204"),               // 3, Canada (some area codes)
+            country("+1", "684"),               // 4, American Samoa, shares +1684 with 2 here
+            country("+7", "3", "4", "5", "8", "9"), // 5, Russia
+            country("+7", "6", "7"),            // 6, Kazakhstan
+            country("+8", ""),                  // 7, no suffix
+            country(null));                     // 8, no dialling code
+
+    private final DialingCodeTrie trie = DialingCodeTrie.of(COUNTRIES);
+
+    @Test
+    public void longestMatch_shouldFindCountryByLongestPrefix() {
+        assertThat(trie.longestMatch("+353871234567").code()).isEqualTo("+353");
+        assertThat(trie.longestMatch("+353871234567").countries()).containsExactly(0);
+        assertThat(trie.longestMatch("+33 1 23 45 67 89").countries()).containsExactly(1);
+        assertThat(trie.longestMatch("+1 (204) 555-0100").countries()).containsExactly(3);
+        assertThat(trie.longestMatch("+1 684 555 0100").countries()).containsExactly(2, 4);
+        assertThat(trie.longestMatch("+79161234567").countries()).containsExactly(5);
+        assertThat(trie.longestMatch("+77011234567").countries()).containsExactly(6);
+        assertThat(trie.longestMatch("+81312345678").code()).isEqualTo("+8");
+    }
+
+    @Test
+    public void longestMatch_shouldAcceptInternationalCallPrefix() {
+        assertThat(trie.longestMatch("00353 1 896 1000").countries()).containsExactly(0);
+        assertThat(trie.longestMatch("353.1.896.1000").countries()).containsExactly(0);
+    }
+
+    @Test
+    public void longestMatch_shouldReturnCopy() {
+        trie.longestMatch("+353871234567").countries()[0] = 1;
+
+        assertThat(trie.longestMatch("+353871234567").countries()).containsExactly(0);
+    }
+
+    @Test
+    public void longestMatch_shouldReturnNullIfNothingMatches() {
+        assertThat(trie.longestMatch("+34912345678")).isNull();    // +3 alone is no dialling code
+        assertThat(trie.longestMatch("+1 999 555 0100")).isNull();
+        assertThat(trie.longestMatch("+353 87 CALL ME")).isNull(); // not a phone number
+        assertThat(trie.longestMatch("+")).isNull();
+        assertThat(trie.longestMatch("")).isNull();
+    }
+
+    private static Country country(String root, String... suffixes) {
+        Country country = new Country();
+        if (root != null) {
+            IDD idd = new IDD();
+            idd.setRoot(root);
+            idd.setSuffixes(List.of(suffixes));
+            country.setIdd(idd);
+        }
+        return country;
+    }
+}
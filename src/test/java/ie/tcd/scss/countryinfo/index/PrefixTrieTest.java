@@ -0,0 +1,41 @@
+package ie.tcd.scss.countryinfo.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrefixTrieTest {
+
+    private final PrefixTrie trie = PrefixTrie.builder()
+            .add("Ireland", "Ireland", 5_000_000)
+            .add("Éire", "Ireland", 5_000_000)
+            .add("Iran", "Iran", 84_000_000)
+            .add("Islamic Republic of Iran", "Iran", 84_000_000)
+            .add("Iraq", "Iraq", 40_000_000)
+            .add("Iceland", "Iceland", 366_000)
+            .add("India", "India", 1_380_000_000)
+            .build(3);
+
+    @Test
+    public void complete_shouldReturnMostPopulousMatchesFirst() {
+        assertThat(trie.complete("Ir")).containsExactly("Iran", "Iraq", "Ireland");
+        assertThat(trie.complete("I")).containsExactly("India", "Iran", "Iraq");
+    }
+
+    @Test
+    public void complete_shouldIgnoreCase() {
+        assertThat(trie.complete("iRE")).containsExactly("Ireland");
+    }
+
+    @Test
+    public void complete_shouldListEachValueOnce() {
+        // "Iran" is reachable via "Iran" and "Islamic Republic of Iran"
+        assertThat(trie.complete("I")).doesNotHaveDuplicates();
+        assertThat(trie.complete("is")).containsExactly("Iran");
+    }
+
+    @Test
+    public void complete_withUnknownPrefix_shouldReturnEmptyList() {
+        assertThat(trie.complete("Xyz")).isEmpty();
+    }
+}
@@ -0,0 +1,52 @@
+package ie.tcd.scss.countryinfo.index;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TldIndexTest {
+
+    private static final List<Country> COUNTRIES = List.of(
+            country(".ie"),                 // 0, Ireland
+            country(".ru", ".su", ".рф"),   // 1, Russia
+            country(".su"),                 // 2, shares .su with 1 here
+            country());                     // 3, no top-level domain
+
+    private final TldIndex index = TldIndex.of(COUNTRIES);
+
+    @Test
+    public void lookup_shouldAcceptDomainsInAnyForm() {
+        assertThat(index.lookup(".ie")).containsExactly(0);
+        assertThat(index.lookup("ie")).containsExactly(0);
+        assertThat(index.lookup(".IE")).containsExactly(0);
+        assertThat(index.lookup("www.tcd.ie")).containsExactly(0);
+        assertThat(index.lookup("www.tcd.ie.")).containsExactly(0);
+        assertThat(index.lookup("пример.рф")).containsExactly(1);
+        assertThat(index.lookup(".su")).containsExactly(1, 2);
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void lookup_shouldReturnCopy() {
+        index.lookup(".su")[0] = 3;
+
+        assertThat(index.lookup(".su")).containsExactly(1, 2);
+    }
+
+    @Test
+    public void lookup_shouldReturnEmptyIfUnknown() {
+        assertThat(index.lookup(".com")).isEmpty();
+        assertThat(index.lookup("tcd.ie.com")).isEmpty();
+        assertThat(index.lookup(".")).isEmpty();
+        assertThat(index.lookup("")).isEmpty();
+    }
+
+    private static Country country(String... tlds) {
+        Country country = new Country();
+        country.setTld(List.of(tlds));
+        return country;
+    }
+}
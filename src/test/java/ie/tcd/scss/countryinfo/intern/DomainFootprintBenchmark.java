@@ -0,0 +1,58 @@
+package ie.tcd.scss.countryinfo.intern;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ie.tcd.scss.countryinfo.domain.Country;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the retained heap of the countries of a snapshot, i.e. of all objects reachable from them, counting
+ * shared objects (e.g. pooled strings) once. The recorded restcountries responses are read repeatedly to get a
+ * snapshot of the real size (about 250 countries). Run with mvn test -Pperf.
+ */
+@Tag("perf")
+public class DomainFootprintBenchmark {
+
+    private static final int SNAPSHOT_SIZE = 250;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    public void measureSnapshotFootprint() throws IOException {
+        List<byte[]> fixtures = readFixtures();
+        List<Country> countries = new ArrayList<>();
+        for (int i = 0; countries.size() < SNAPSHOT_SIZE; i++) {
+            for (Country country : mapper.readValue(fixtures.get(i % fixtures.size()), Country[].class)) {
+                countries.add(country);
+            }
+        }
+
+        GraphLayout layout = GraphLayout.parseInstance(countries);
+        System.out.printf("%d countries: %d objects, %d bytes retained, %d bytes per country%n",
+                countries.size(), layout.totalCount(), layout.totalSize(), layout.totalSize() / countries.size());
+        assertThat(layout.totalSize()).isPositive();
+    }
+
+    private List<byte[]> readFixtures() throws IOException {
+        List<byte[]> fixtures = new ArrayList<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver()
+                .getResources("classpath:upstream/v3.1/name/*.json")) {
+            try (InputStream in = resource.getInputStream()) {
+                fixtures.add(in.readAllBytes());
+            }
+        }
+        return fixtures;
+    }
+}
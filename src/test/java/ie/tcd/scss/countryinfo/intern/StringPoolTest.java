@@ -0,0 +1,64 @@
+package ie.tcd.scss.countryinfo.intern;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StringPoolTest {
+
+    @Test
+    public void intern_shouldReturnTheSameInstanceForEqualStrings() {
+        String first = new String("Western Europe");
+        String second = new String("Western Europe");
+
+        assertThat(StringPool.intern(first)).isSameAs(StringPool.intern(second));
+        assertThat(StringPool.intern(null)).isNull();
+    }
+
+    @Test
+    public void internAll_shouldKeepOrderAndNulls() {
+        List<String> interned = StringPool.internAll(Arrays.asList(new String("FRA"), null, new String("DEU")));
+
+        assertThat(interned).containsExactly("FRA", null, "DEU");
+        assertThat(interned.get(0)).isSameAs(StringPool.intern("FRA"));
+    }
+
+    @Test
+    public void compactStrings_shouldBeAnImmutableCopyInInsertionOrder() {
+        Map<String, String> languages = new LinkedHashMap<>();
+        languages.put(new String("gle"), new String("Irish"));
+        languages.put(new String("eng"), new String("English"));
+
+        Map<String, String> compact = StringPool.compactStrings(languages);
+
+        assertThat(compact).isEqualTo(languages);
+        assertThat(compact.keySet()).containsExactly("gle", "eng");
+        assertThat(compact.get("eng")).isSameAs(StringPool.intern("English"));
+        assertThat(compact.get("fra")).isNull();
+        assertThat(compact.hashCode()).isEqualTo(languages.hashCode());
+        assertThatThrownBy(() -> compact.put("fra", "French")).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void compactByLanguage_shouldStoreLanguagesOfAnyCode() {
+        Map<String, String> nativeNames = new LinkedHashMap<>();
+        nativeNames.put("gle", "Éire");
+        nativeNames.put("eng", "Ireland");
+        nativeNames.put(new String("xqz"), "Unregistered"); // not one of the translation languages
+
+        Map<String, String> compact = StringPool.compactByLanguage(nativeNames);
+
+        assertThat(compact).isEqualTo(nativeNames);
+        assertThat(compact.keySet()).containsExactly("gle", "eng", "xqz");
+        assertThat(compact.get("xqz")).isEqualTo("Unregistered");
+        assertThat(compact.get("deu")).isNull();
+        assertThat(compact.get("abc-unknown")).isNull();
+        assertThat(LanguageCodes.codeOf(LanguageCodes.ordinalOf("gle"))).isSameAs(compact.keySet().iterator().next());
+    }
+}
@@ -0,0 +1,105 @@
+package ie.tcd.scss.countryinfo.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.service.BatchResponse;
+import ie.tcd.scss.countryinfo.service.BatchResult;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the payload size and the encode/decode throughput of the JSON, CBOR and Smile responses, for a single
+ * country (GET /countries/{countryname}) and for a list of countries (POST /countries/batch). Run with
+ * mvn test -Pperf; the results are printed as a table.
+ */
+@Tag("perf")
+public class ResponseFormatBenchmark {
+
+    private static final int LIST_SIZE = 250; // about the number of countries in the data set
+    private static final long WARMUP_NANOS = 2_000_000_000L;
+    private static final long MEASUREMENT_NANOS = 3_000_000_000L;
+
+    private final Map<String, ObjectMapper> mappers = Map.of(
+            "json", mapper(new JsonFactory()),
+            "cbor", mapper(new CBORFactory()),
+            "smile", mapper(new SmileFactory()));
+
+    @Test
+    public void compareFormats() throws IOException {
+        Country country = readFixture();
+        List<BatchResult> results = new ArrayList<>();
+        for (int i = 0; i < LIST_SIZE; i++) {
+            results.add(new BatchResult("Ireland", BatchResult.Status.FOUND, country, null));
+        }
+        BatchResponse list = new BatchResponse(results);
+
+        System.out.printf("%-6s %-7s %10s %14s %14s%n", "format", "payload", "bytes", "encode ops/s", "decode ops/s");
+        for (String format : List.of("json", "cbor", "smile")) {
+            ObjectMapper mapper = mappers.get(format);
+            report(format, "country", mapper, country, Country.class);
+            report(format, "list", mapper, list, BatchResponse.class);
+
+            Country decoded = mapper.readValue(mapper.writeValueAsBytes(country), Country.class);
+            assertThat(decoded.getName().getCommon()).isEqualTo("Ireland");
+            assertThat(decoded.getCapital()).containsExactly("Dublin");
+        }
+    }
+
+    private static void report(String format, String payload, ObjectMapper mapper, Object value, Class<?> type)
+            throws IOException {
+        byte[] encoded = mapper.writeValueAsBytes(value);
+        double encodeRate = opsPerSecond(() -> mapper.writeValueAsBytes(value));
+        double decodeRate = opsPerSecond(() -> mapper.readValue(encoded, type));
+        System.out.printf("%-6s %-7s %10d %14.0f %14.0f%n", format, payload, encoded.length, encodeRate, decodeRate);
+    }
+
+    private static double opsPerSecond(Operation operation) throws IOException {
+        long end = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < end) {
+            operation.run();
+        }
+        long operations = 0;
+        long start = System.nanoTime();
+        end = start + MEASUREMENT_NANOS;
+        long now;
+        do {
+            operation.run();
+            operations++;
+            now = System.nanoTime();
+        } while (now < end);
+        return operations * 1e9 / (now - start);
+    }
+
+    /**
+     * Configured like the ObjectMappers of the message converters (see JacksonConfig).
+     */
+    private static ObjectMapper mapper(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory);
+        mapper.setAnnotationIntrospector(new FieldProjection.DomainFilterIntrospector());
+        mapper.setFilterProvider(FieldProjection.ALL_FIELDS);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return mapper;
+    }
+
+    private Country readFixture() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/upstream/v3.1/name/ireland.json")) {
+            return mappers.get("json").readValue(in, Country[].class)[0];
+        }
+    }
+
+    private interface Operation {
+        Object run() throws IOException;
+    }
+}
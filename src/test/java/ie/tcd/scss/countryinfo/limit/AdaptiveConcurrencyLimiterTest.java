@@ -0,0 +1,54 @@
+package ie.tcd.scss.countryinfo.limit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 2, 10, 0.5, 1_000_000);
+
+    @Test
+    public void tryAcquire_shouldRejectCallsOverTheLimit() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.getInFlight()).isEqualTo(4);
+    }
+
+    @Test
+    public void release_shouldRaiseTheLimitWhileItIsUsed() {
+        // rounds in which the limit is used up and every call succeeds
+        for (int round = 0; round < 10; round++) {
+            int calls = 0;
+            while (limiter.tryAcquire()) {
+                calls++;
+            }
+            for (int i = 0; i < calls; i++) {
+                limiter.release(false);
+            }
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThan(4).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    public void release_shouldNotRaiseAnUnusedLimit() {
+        limiter.tryAcquire();
+        limiter.release(false);
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    public void release_onOverload_shouldCutTheLimitDownToTheMinimum() {
+        limiter.tryAcquire();
+        limiter.release(true);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        limiter.tryAcquire();
+        limiter.release(true);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,105 @@
+package ie.tcd.scss.countryinfo.limit;
+
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.availability.ApplicationAvailabilityBean;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitFilterTest {
+
+    private final CountryInfoProperties properties = new CountryInfoProperties();
+    private final ApplicationAvailabilityBean availability = new ApplicationAvailabilityBean();
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        properties.getRateLimit().setBurst(2);
+        properties.getRateLimit().setRequestsPerSecond(0.5);
+        properties.getRateLimit().setApiKeys(List.of("key-1"));
+        availability.onApplicationEvent(new AvailabilityChangeEvent<>(this, ReadinessState.ACCEPTING_TRAFFIC));
+        filter = new RateLimitFilter(properties, availability);
+    }
+
+    @Test
+    public void requestsOverTheBurst_shouldGetTooManyRequests() throws Exception {
+        assertThat(send("/countries/Germany", "10.0.0.1", null).getStatus()).isEqualTo(200);
+        assertThat(send("/countries/Germany", "10.0.0.1", null).getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse response = send("/countries/Germany", "10.0.0.1", null);
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+    }
+
+    @Test
+    public void clients_shouldBeLimitedSeparately() throws Exception {
+        send("/countries/Germany", "10.0.0.1", null);
+        send("/countries/Germany", "10.0.0.1", null);
+
+        // another address, and the same address with an API key, each have their own bucket
+        assertThat(send("/countries/Germany", "10.0.0.2", null).getStatus()).isEqualTo(200);
+        assertThat(send("/countries/Germany", "10.0.0.1", "key-1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void rotatingUnknownApiKeys_shouldShareTheLimitOfTheAddress() throws Exception {
+        assertThat(send("/countries/Germany", "10.0.0.1", "random-1").getStatus()).isEqualTo(200);
+        assertThat(send("/countries/Germany", "10.0.0.1", "random-2").getStatus()).isEqualTo(200);
+        assertThat(send("/countries/Germany", "10.0.0.1", "random-3").getStatus()).isEqualTo(429);
+        assertThat(send("/countries/Germany", "10.0.0.1", null).getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    public void rotatingUnknownApiKeys_shouldNotCrowdOutOtherClients() throws Exception {
+        properties.getRateLimit().setMaxClients(3);
+        filter = new RateLimitFilter(properties, availability);
+
+        assertThat(send("/countries/Germany", "10.0.0.2", null).getStatus()).isEqualTo(200);
+        for (int i = 0; i < 100; i++) {
+            send("/countries/Germany", "10.0.0.1", "random-" + i);
+        }
+
+        // the keys don't fill the tracked clients, so 10.0.0.3 gets a bucket of its own rather than the shared one
+        assertThat(send("/countries/Germany", "10.0.0.3", null).getStatus()).isEqualTo(200);
+        assertThat(send("/countries/Germany", "10.0.0.3", null).getStatus()).isEqualTo(200);
+        assertThat(send("/countries/Germany", "10.0.0.2", null).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void requestsOutsideCountries_shouldNotBeLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(send("/actuator/health", "10.0.0.1", null).getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    public void requestsBeforeReady_shouldNotBeLimited() throws Exception {
+        availability.onApplicationEvent(new AvailabilityChangeEvent<>(this, ReadinessState.REFUSING_TRAFFIC));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(send("/countries/Germany", "127.0.0.1", null).getStatus()).isEqualTo(200);
+        }
+    }
+
+    private MockHttpServletResponse send(String path, String address, String apiKey)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(address);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,41 @@
+package ie.tcd.scss.countryinfo.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void tryAcquire_shouldAllowBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(3, 1, 0);
+
+        assertThat(bucket.tryAcquire(0)).isZero();
+        assertThat(bucket.tryAcquire(0)).isZero();
+        assertThat(bucket.tryAcquire(0)).isZero();
+        assertThat(bucket.tryAcquire(0)).isEqualTo(SECOND);
+    }
+
+    @Test
+    public void tryAcquire_shouldRefillAtTheGivenRate() {
+        TokenBucket bucket = new TokenBucket(1, 2, 0);
+        bucket.tryAcquire(0);
+
+        // half a token after a quarter of a second, so a quarter of a second more to wait
+        assertThat(bucket.tryAcquire(SECOND / 4)).isEqualTo(SECOND / 4);
+        assertThat(bucket.tryAcquire(SECOND / 2)).isZero();
+    }
+
+    @Test
+    public void isFull_shouldBeTrueOnceIdleLongEnough() {
+        TokenBucket bucket = new TokenBucket(2, 1, 0);
+        bucket.tryAcquire(0);
+
+        assertThat(bucket.isFull(0)).isFalse();
+        assertThat(bucket.isFull(SECOND)).isTrue();
+    }
+}
@@ -0,0 +1,265 @@
+package ie.tcd.scss.countryinfo.load;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import ie.tcd.scss.countryinfo.upstream.FakeUpstreamServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives every /countries/** route with a weighted traffic mix against a local upstream stand-in, and fails if the
+ * latency, throughput or error rate of a route regressed against load/baseline.json beyond the limits in
+ * load/slo.properties. Run with mvn test -Pload.
+ *
+ * The run can be tuned with system properties: load.concurrency (parallel clients), load.warmup-seconds,
+ * load.duration-seconds and load.upstream-latency-ms. With load.update-baseline=true the results are written to
+ * src/test/resources/load/baseline.json instead of being checked; the baseline should be recorded on the machine
+ * the gate runs on. Every run writes its results to target/load-test/results.json.
+ */
+@Tag("load")
+// all clients share one address; the per-client rate limit is tested on its own
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "countryinfo.rate-limit.enabled=false")
+public class CountryLoadTest {
+
+    private static final List<String> COUNTRIES = List.of("Germany", "France", "Ireland", "Russia", "Bolivia",
+            "South Africa");
+    private static final List<String> PREFIXES = List.of("g", "fr", "ir", "ru", "bo", "sou", "deu", "x");
+    private static final Path BASELINE = Path.of("src/test/resources/load/baseline.json");
+    private static final Path RESULTS = Path.of("target/load-test/results.json");
+
+    private static final FakeUpstreamServer upstream = FakeUpstreamServer.start();
+
+    static {
+        upstream.setImagesServed(true); // so that the flags can be downloaded from the fake upstream
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void upstreamProperties(DynamicPropertyRegistry registry) {
+        registry.add("countryinfo.upstream.base-url", upstream::getBaseUrl);
+        // the first requests for each flag measure the download, the others the image cache
+        registry.add("countryinfo.images.prefetch", () -> "");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.close();
+    }
+
+    @Test
+    public void allRoutes_shouldMeetTheirSlos() throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 16);
+        long warmupSeconds = Long.getLong("load.warmup-seconds", 10);
+        long durationSeconds = Long.getLong("load.duration-seconds", 30);
+        long upstreamLatency = Long.getLong("load.upstream-latency-ms", 5);
+        upstream.setLatency(Duration.ofMillis(upstreamLatency), Duration.ofMillis(upstreamLatency));
+
+        List<Route> routes = routes();
+        run(routes, concurrency, TimeUnit.SECONDS.toNanos(warmupSeconds));
+        Map<Route, LatencyRecorder> recorders = run(routes, concurrency, TimeUnit.SECONDS.toNanos(durationSeconds));
+
+        List<RouteStats> results = new ArrayList<>();
+        recorders.forEach((route, recorder) ->
+                results.add(recorder.stats(route.name(), TimeUnit.SECONDS.toNanos(durationSeconds))));
+        print(results);
+        Files.createDirectories(RESULTS.getParent());
+        objectMapper.writeValue(RESULTS.toFile(), results);
+
+        if (Boolean.getBoolean("load.update-baseline")) {
+            objectMapper.writeValue(BASELINE.toFile(), results);
+            return;
+        }
+        Map<String, RouteStats> baseline = Files.exists(BASELINE)
+                ? objectMapper.readValue(BASELINE.toFile(), new TypeReference<List<RouteStats>>() { }).stream()
+                        .collect(Collectors.toMap(RouteStats::route, stats -> stats))
+                : Map.of();
+        assertThat(new SloGate(sloProperties()).check(results, baseline)).isEmpty();
+    }
+
+    /**
+     * The traffic mix: every route with its share of the requests and the statuses that count as success.
+     */
+    private List<Route> routes() {
+        String base = "http://localhost:" + port + "/countries";
+        return List.of(
+                new Route("GET /{countryname}", 25, Set.of(200),
+                        random -> get(base + "/" + encode(pick(random, COUNTRIES)))),
+                new Route("GET /{countryname}?fields=", 10, Set.of(200),
+                        random -> get(base + "/" + encode(pick(random, COUNTRIES))
+                                + "?fields=name.common,capital,flag")),
+                new Route("GET /{countryname}/flag", 5, Set.of(200),
+                        random -> get(base + "/" + encode(pick(random, COUNTRIES)) + "/flag")),
+                new Route("GET /{countryname}/map", 5, Set.of(200),
+                        random -> get(base + "/" + encode(pick(random, COUNTRIES)) + "/map")),
+                new Route("GET /{countryname}/continents", 5, Set.of(200),
+                        random -> get(base + "/" + encode(pick(random, COUNTRIES)) + "/continents")),
+                new Route("GET /{countryname}/translation/{language}", 5, Set.of(200, 404),
+                        random -> get(base + "/" + encode(pick(random, COUNTRIES)) + "/translation/"
+                                + pick(random, List.of("deu", "fra", "jpn", "spa", "xyz")))),
+                new Route("GET /{countryname}/images/{image}", 3, Set.of(200),
+                        random -> get(base + "/" + encode(pick(random, COUNTRIES)) + "/images/flag.png")),
+                new Route("GET /{countryname}/similar", 3, Set.of(200),
+                        random -> get(base + "/" + encode(pick(random, COUNTRIES)) + "/similar?limit=5")),
+                new Route("GET /{substring}/mostPopulous", 4, Set.of(200, 404),
+                        random -> get(base + "/" + pick(random, PREFIXES) + "/mostPopulous")),
+                new Route("GET /{substring}/mostPopulousWithPopulation", 1, Set.of(200, 404),
+                        random -> get(base + "/" + pick(random, PREFIXES) + "/mostPopulousWithPopulation")),
+                new Route("GET /{substring}/mostPopulous/stream", 3, Set.of(200),
+                        random -> get(base + "/" + pick(random, PREFIXES) + "/mostPopulous/stream")),
+                new Route("GET /autocomplete", 20, Set.of(200),
+                        random -> get(base + "/autocomplete?prefix=" + pick(random, PREFIXES))),
+                new Route("GET /aggregate", 5, Set.of(200),
+                        random -> get(base + "/aggregate?groupBy=" + pick(random, List.of("region", "language"))
+                                + "&function=" + pick(random, List.of("count", "sum", "avg"))
+                                + "&metric=population")),
+                new Route("GET /changes", 2, Set.of(200),
+                        random -> get(base + "/changes?since=0")),
+                new Route("GET /dial/{number}", 2, Set.of(200, 404),
+                        random -> get(base + "/dial/" + encode(pick(random, List.of("+353 1 896 1000",
+                                "+49 30 123456", "0033 1 23 45 67 89", "+7 495 123 4567", "+27 21 123 4567",
+                                "+591 2 123456", "+999 123"))))),
+                new Route("GET /tld/{tld}", 2, Set.of(200, 404),
+                        random -> get(base + "/tld/" + pick(random, List.of(".ie", "de", "www.tcd.ie", ".fr", ".ru",
+                                ".za", ".bo", ".com")))),
+                new Route("GET /business-hours", 1, Set.of(200),
+                        random -> get(base + "/business-hours?from=" + random.nextInt(12)
+                                + "&to=" + (12 + random.nextInt(13)))),
+                new Route("GET /{countryname}/timezone-peers", 2, Set.of(200),
+                        random -> get(base + "/" + encode(pick(random, COUNTRIES)) + "/timezone-peers")),
+                new Route("GET /{countryname}/local-time", 2, Set.of(200),
+                        random -> get(base + "/" + encode(pick(random, COUNTRIES)) + "/local-time")),
+                new Route("POST /batch", 3, Set.of(200),
+                        random -> HttpRequest.newBuilder(URI.create(base + "/batch"))
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(
+                                        "{\"queries\":[\"DE\",\"fra\",\"Ireland\",\"643\",\"Bolivia\",\"Xyz\"]}"))
+                                .build()),
+                new Route("GET /export", 1, Set.of(200),
+                        random -> get(base + "/export")));
+    }
+
+    /**
+     * Sends requests from the given number of clients, each picking the next route at random by weight, until the
+     * time is up.
+     */
+    private Map<Route, LatencyRecorder> run(List<Route> routes, int concurrency, long durationNanos)
+            throws InterruptedException {
+        Map<Route, LatencyRecorder> recorders = new LinkedHashMap<>();
+        routes.forEach(route -> recorders.put(route, new LatencyRecorder()));
+        int totalWeight = routes.stream().mapToInt(Route::weight).sum();
+        long end = System.nanoTime() + durationNanos;
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Random random = new Random(i); // seeded, so that every run sends the same sequence of requests
+            clients.submit(() -> {
+                while (System.nanoTime() < end) {
+                    Route route = pick(random, routes, totalWeight);
+                    HttpRequest request = route.request().apply(random);
+                    long start = System.nanoTime();
+                    boolean error;
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        error = !route.expectedStatuses().contains(response.statusCode());
+                    } catch (IOException e) {
+                        error = true;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    recorders.get(route).record(System.nanoTime() - start, error);
+                }
+            });
+        }
+        clients.shutdown();
+        if (!clients.awaitTermination(durationNanos + TimeUnit.SECONDS.toNanos(60), TimeUnit.NANOSECONDS)) {
+            clients.shutdownNow();
+        }
+        return recorders;
+    }
+
+    private static void print(List<RouteStats> results) {
+        System.out.printf("%-45s %8s %7s %9s %9s %9s %9s %9s%n", "route", "requests", "errors", "req/s",
+                "p50 ms", "p95 ms", "p99 ms", "p99.9 ms");
+        for (RouteStats stats : results) {
+            System.out.printf("%-45s %8d %7d %9.1f %9.3f %9.3f %9.3f %9.3f%n", stats.route(), stats.requests(),
+                    stats.errors(), stats.throughput(), stats.p50(), stats.p95(), stats.p99(), stats.p999());
+        }
+    }
+
+    private static Properties sloProperties() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = CountryLoadTest.class.getResourceAsStream("/load/slo.properties")) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).GET().build();
+    }
+
+    private static String encode(String pathSegment) {
+        return URLEncoder.encode(pathSegment, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static <T> T pick(Random random, List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static Route pick(Random random, List<Route> routes, int totalWeight) {
+        int ticket = random.nextInt(totalWeight);
+        for (Route route : routes) {
+            ticket -= route.weight();
+            if (ticket < 0) {
+                return route;
+            }
+        }
+        throw new IllegalStateException("Weights don't add up");
+    }
+
+    private record Route(String name, int weight, Set<Integer> expectedStatuses,
+                         Function<Random, HttpRequest> request) {
+    }
+}
@@ -0,0 +1,52 @@
+package ie.tcd.scss.countryinfo.load;
+
+import java.util.Arrays;
+
+/**
+ * Collects the latencies and outcomes of the requests to one route. Recording is synchronized, which is cheap
+ * compared to an HTTP round trip.
+ */
+class LatencyRecorder {
+
+    private long[] latencies = new long[1024]; // nanoseconds
+    private int count;
+    private int errors;
+
+    synchronized void record(long latencyNanos, boolean error) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (error) {
+            errors++;
+        }
+    }
+
+    /**
+     * @param name The name of the route
+     * @param durationNanos The length of the measurement
+     * @return The statistics of the recorded requests
+     */
+    synchronized RouteStats stats(String name, long durationNanos) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return new RouteStats(name, count, errors, count * 1e9 / durationNanos,
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+                millis(percentile(sorted, 0.99)), millis(percentile(sorted, 0.999)));
+    }
+
+    /**
+     * Nearest-rank percentile.
+     */
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
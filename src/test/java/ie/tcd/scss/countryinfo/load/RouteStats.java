@@ -0,0 +1,17 @@
+package ie.tcd.scss.countryinfo.load;
+
+/**
+ * The measured performance of one route; latencies are in milliseconds.
+ *
+ * @param route The name of the route
+ * @param requests The number of requests sent
+ * @param errors The number of requests that failed or got an unexpected status
+ * @param throughput Requests per second
+ */
+record RouteStats(String route, long requests, long errors, double throughput,
+                  double p50, double p95, double p99, double p999) {
+
+    double errorRate() {
+        return requests == 0 ? 0 : (double) errors / requests;
+    }
+}
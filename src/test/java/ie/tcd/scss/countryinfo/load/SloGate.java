@@ -0,0 +1,73 @@
+package ie.tcd.scss.countryinfo.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Compares the results of a load test with a stored baseline. A route violates its SLO if a latency percentile grew
+ * by more than the allowed fraction (plus a small absolute slack, so that sub-millisecond routes don't fail on
+ * noise), its throughput dropped by more than the allowed fraction, or its error rate exceeds the limit.
+ *
+ * The limits are read from load/slo.properties and can be overridden with system properties of the same name.
+ */
+class SloGate {
+
+    private final double maxP50Regression;
+    private final double maxP99Regression;
+    private final double maxP999Regression;
+    private final double maxThroughputDrop;
+    private final double maxErrorRate;
+    private final double slackMillis;
+
+    SloGate(Properties slo) {
+        this.maxP50Regression = value(slo, "load.slo.max-regression.p50");
+        this.maxP99Regression = value(slo, "load.slo.max-regression.p99");
+        this.maxP999Regression = value(slo, "load.slo.max-regression.p999");
+        this.maxThroughputDrop = value(slo, "load.slo.max-throughput-drop");
+        this.maxErrorRate = value(slo, "load.slo.max-error-rate");
+        this.slackMillis = value(slo, "load.slo.slack-ms");
+    }
+
+    /**
+     * @param results The results of the current run
+     * @param baseline The results of the baseline run, by route
+     * @return A description of every violation; empty if all SLOs are met
+     */
+    List<String> check(List<RouteStats> results, Map<String, RouteStats> baseline) {
+        List<String> violations = new ArrayList<>();
+        for (RouteStats result : results) {
+            if (result.errorRate() > maxErrorRate) {
+                violations.add(String.format("%s: error rate %.4f > %.4f", result.route(), result.errorRate(),
+                        maxErrorRate));
+            }
+            RouteStats base = baseline.get(result.route());
+            if (base == null) {
+                continue; // new route, nothing to compare with yet
+            }
+            checkLatency(violations, result.route(), "p50", result.p50(), base.p50(), maxP50Regression);
+            checkLatency(violations, result.route(), "p99", result.p99(), base.p99(), maxP99Regression);
+            checkLatency(violations, result.route(), "p99.9", result.p999(), base.p999(), maxP999Regression);
+            double minThroughput = base.throughput() * (1 - maxThroughputDrop);
+            if (result.throughput() < minThroughput) {
+                violations.add(String.format("%s: throughput %.1f/s < %.1f/s (baseline %.1f/s)", result.route(),
+                        result.throughput(), minThroughput, base.throughput()));
+            }
+        }
+        return violations;
+    }
+
+    private void checkLatency(List<String> violations, String route, String percentile, double measured,
+                              double baseline, double maxRegression) {
+        double limit = baseline * (1 + maxRegression) + slackMillis;
+        if (measured > limit) {
+            violations.add(String.format("%s: %s %.3f ms > %.3f ms (baseline %.3f ms)", route, percentile, measured,
+                    limit, baseline));
+        }
+    }
+
+    private static double value(Properties slo, String name) {
+        return Double.parseDouble(System.getProperty(name, slo.getProperty(name)));
+    }
+}
@@ -0,0 +1,222 @@
+package ie.tcd.scss.countryinfo.query;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ie.tcd.scss.countryinfo.aggregation.CountryColumns;
+import ie.tcd.scss.countryinfo.aggregation.GroupBy;
+import ie.tcd.scss.countryinfo.aggregation.Rollup;
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.service.CountryRecord;
+import ie.tcd.scss.countryinfo.service.CountrySnapshot;
+import ie.tcd.scss.countryinfo.similarity.CountryFeatures;
+import ie.tcd.scss.countryinfo.similarity.SimilarityTable;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JMH benchmark of the queries run by QueryExecutor, to find the crossover between sequential and parallel execution
+ * and to derive the cost estimates of the switch between them:
+ * - rollups over the columns of n countries, and batches of n lookups in a snapshot of 250 countries, both on the
+ *   calling thread and on the query pool; the sequential time per element is the estimate the caller passes
+ *   (ROLLUP_NANOS_PER_COUNTRY, LOOKUP_NANOS_PER_QUERY), the smallest n where the pool is faster the crossover
+ * - the similarity table of 250 countries on the calling thread, for the estimated work per pair (NANOS_PER_PAIR)
+ * - a parallel query of two elements that do nothing, i.e. the fixed cost of handing a query to the pool, splitting
+ *   and merging it. With p threads, a query of work w takes about w / p + that cost in parallel, so it pays off from
+ *   w = cost * p / (p - 1), at most twice the cost: countryinfo.query.parallel-threshold-nanos
+ * Run with mvn test -Pperf; the derived values are printed after the JMH results.
+ */
+@Tag("perf")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryExecutorBenchmark {
+
+    private static final int SNAPSHOT_SIZE = 250;
+    private static final int SIMILAR_COUNTRIES = 10;
+
+    @State(Scope.Benchmark)
+    public static class Pool {
+
+        QueryExecutor executor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // at least two threads, so that the fixed cost is measured even on a single processor
+            executor = new QueryExecutor(Math.max(2, Runtime.getRuntime().availableProcessors()), 0, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            executor.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Data {
+
+        @Param({"250", "1000", "4000", "16000", "64000"})
+        public int n;
+
+        CountryColumns columns;
+        CountrySnapshot snapshot;
+        List<String> names;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            List<Country> fixtures = readFixtures();
+            columns = CountryColumns.of(replicate(fixtures, n));
+            List<CountryRecord> records = new ArrayList<>();
+            List<Country> countries = replicate(fixtures, SNAPSHOT_SIZE);
+            for (int i = 0; i < countries.size(); i++) {
+                records.add(new CountryRecord(String.format("C%03d", i), "", countries.get(i), new byte[0]));
+            }
+            snapshot = CountrySnapshot.build(1, records, null, 10, SIMILAR_COUNTRIES, QueryExecutor.sequential());
+            names = fixtures.stream().map(c -> c.getName().getCommon()).toList();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Similarity {
+
+        CountryFeatures features;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            features = CountryFeatures.of(replicate(readFixtures(), SNAPSHOT_SIZE));
+        }
+    }
+
+    @Benchmark
+    public Rollup rollupSequential(Data data) {
+        return data.columns.rollup(GroupBy.REGION, c -> true, QueryExecutor.sequential());
+    }
+
+    @Benchmark
+    public Rollup rollupParallel(Data data, Pool pool) {
+        return data.columns.rollup(GroupBy.REGION, c -> true, pool.executor);
+    }
+
+    @Benchmark
+    public void lookupSequential(Data data, Blackhole blackhole) {
+        lookups(data, QueryExecutor.sequential(), blackhole);
+    }
+
+    @Benchmark
+    public void lookupParallel(Data data, Pool pool, Blackhole blackhole) {
+        lookups(data, pool.executor, blackhole);
+    }
+
+    @Benchmark
+    public SimilarityTable similaritySequential(Similarity similarity) {
+        return SimilarityTable.build(similarity.features, SIMILAR_COUNTRIES, QueryExecutor.sequential());
+    }
+
+    @Benchmark
+    public Object parallelOverhead(Pool pool) {
+        return pool.executor.collect(2, 0, () -> null, (none, i) -> { }, (none, other) -> null);
+    }
+
+    private static void lookups(Data data, QueryExecutor executor, Blackhole blackhole) {
+        executor.forEach(data.n, 1, i -> blackhole.consume(data.snapshot.find(data.names.get(i % data.names.size()))));
+    }
+
+    @Test
+    public void findCrossover() throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(QueryExecutorBenchmark.class.getName() + "\\.")
+                .build()).run();
+        assertThat(results).isNotEmpty();
+
+        Map<String, Double> micros = new TreeMap<>(); // by benchmark and n
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            String n = result.getParams().getParam("n");
+            micros.put(benchmark.substring(benchmark.lastIndexOf('.') + 1) + (n != null ? ":" + n : ""),
+                    result.getPrimaryResult().getScore());
+        }
+
+        System.out.printf("%d available processors%n", Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-7s %8s %14s %14s %8s %10s%n", "query", "n", "sequential us", "parallel us", "speedup",
+                "ns/element");
+        for (String query : List.of("rollup", "lookup")) {
+            Integer crossover = null;
+            double nanosPerElement = 0;
+            for (String n : List.of("250", "1000", "4000", "16000", "64000")) {
+                double sequential = micros.get(query + "Sequential:" + n);
+                double parallel = micros.get(query + "Parallel:" + n);
+                nanosPerElement = sequential * 1000 / Integer.parseInt(n); // the largest n amortizes the most
+                if (crossover == null && sequential > parallel) {
+                    crossover = Integer.parseInt(n);
+                }
+                System.out.printf("%-7s %8s %14.1f %14.1f %8.2f %10.1f%n", query, n, sequential, parallel,
+                        sequential / parallel, nanosPerElement);
+            }
+            System.out.printf("%-7s crossover at n = %s, estimated work %.0f ns per element%n", query,
+                    crossover != null ? crossover : "none", nanosPerElement);
+        }
+        double similarity = micros.get("similaritySequential");
+        double overhead = micros.get("parallelOverhead");
+        System.out.printf("similarity of %d countries: %.1f us, estimated work %.0f ns per pair%n", SNAPSHOT_SIZE,
+                similarity, similarity * 1000 / ((double) SNAPSHOT_SIZE * SNAPSHOT_SIZE));
+        System.out.printf("fixed cost of a parallel query: %.1f us, parallel-threshold-nanos for 2 threads: %.0f%n",
+                overhead, 2 * overhead * 1000);
+    }
+
+    private static List<Country> replicate(List<Country> countries, int n) {
+        List<Country> replicated = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            replicated.add(countries.get(i % countries.size()));
+        }
+        return replicated;
+    }
+
+    private static List<Country> readFixtures() {
+        ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        List<Country> countries = new ArrayList<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver()
+                    .getResources("classpath:upstream/v3.1/name/*.json")) {
+                try (InputStream in = resource.getInputStream()) {
+                    countries.addAll(List.of(mapper.readValue(in, Country[].class)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return countries;
+    }
+}
@@ -0,0 +1,55 @@
+package ie.tcd.scss.countryinfo.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryExecutorTest {
+
+    @Test
+    public void collect_inParallel_shouldCombinePartsInOrder() {
+        try (QueryExecutor executor = new QueryExecutor(4, 0, 1)) {
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+
+            List<Integer> elements = executor.collect(10_000, 1, ArrayList::new, (list, i) -> {
+                threads.add(Thread.currentThread().getName());
+                list.add(i);
+            }, (list, following) -> {
+                list.addAll(following);
+                return list;
+            });
+
+            assertThat(elements).isEqualTo(IntStream.range(0, 10_000).boxed().toList());
+            assertThat(threads).allMatch(name -> name.startsWith("countryinfo-query-"));
+        }
+    }
+
+    @Test
+    public void isParallel_shouldDependOnEstimatedWork() {
+        try (QueryExecutor executor = new QueryExecutor(4, 100_000, 1)) {
+            assertThat(executor.isParallel(250, 100)).isFalse();
+            assertThat(executor.isParallel(1_000, 100)).isTrue();
+            assertThat(executor.isParallel(250, 1_000)).isTrue();
+        }
+        try (QueryExecutor executor = new QueryExecutor(1, 0, 1)) {
+            assertThat(executor.isParallel(1_000_000, 1_000)).isFalse(); // a single thread can't do better
+        }
+    }
+
+    @Test
+    public void forEach_belowThreshold_shouldRunOnCallingThread() {
+        try (QueryExecutor executor = new QueryExecutor(4, Long.MAX_VALUE, 1)) {
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+            executor.forEach(1_000, 100, i -> threads.add(Thread.currentThread()));
+
+            assertThat(threads).containsExactly(Thread.currentThread());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ie.tcd.scss.countryinfo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangeLogTest {
+
+    @Test
+    public void since_shouldReturnChangesAfterVersion() {
+        ChangeLog log = new ChangeLog(10);
+        log.start(1);
+        log.append(2, List.of(updated(2, "IRL")));
+        log.append(3, List.of(updated(3, "DEU"), updated(3, "FRA")));
+
+        String epoch = log.getEpoch();
+        assertThat(log.since(2, epoch))
+                .isEqualTo(new ChangeFeed(epoch, 3, true, List.of(updated(3, "DEU"), updated(3, "FRA"))));
+        assertThat(log.since(1, epoch).changes()).hasSize(3);
+        assertThat(log.since(3, epoch)).isEqualTo(new ChangeFeed(epoch, 3, true, List.of()));
+        assertThat(log.since(0, null).complete()).isFalse(); // before the first snapshot
+    }
+
+    @Test
+    public void since_shouldBeIncompleteForVersionsOfAnotherProcess() {
+        ChangeLog restarted = new ChangeLog(10);
+        restarted.start(1);
+        restarted.append(2, List.of(updated(2, "IRL")));
+        String epoch = restarted.getEpoch();
+
+        // a client that polled the process before the restart, which had got to version 5
+        assertThat(restarted.since(5, null)).isEqualTo(new ChangeFeed(epoch, 2, false, List.of()));
+        // a client that polled another instance, which is at the same version with other data
+        assertThat(restarted.since(2, new ChangeLog(10).getEpoch()))
+                .isEqualTo(new ChangeFeed(epoch, 2, false, List.of()));
+        assertThat(restarted.since(2, null)).isEqualTo(new ChangeFeed(epoch, 2, true, List.of()));
+    }
+
+    @Test
+    public void append_shouldDropOldestVersionsAsAWhole() {
+        ChangeLog log = new ChangeLog(3);
+        log.start(1);
+        log.append(2, List.of(updated(2, "IRL"), updated(2, "DEU")));
+        log.append(3, List.of(updated(3, "FRA"), updated(3, "RUS")));
+
+        // one change of version 2 would still fit, but half a version is useless to a client
+        String epoch = log.getEpoch();
+        assertThat(log.since(2, epoch))
+                .isEqualTo(new ChangeFeed(epoch, 3, true, List.of(updated(3, "FRA"), updated(3, "RUS"))));
+        assertThat(log.since(1, epoch))
+                .isEqualTo(new ChangeFeed(epoch, 3, false, List.of(updated(3, "FRA"), updated(3, "RUS"))));
+    }
+
+    @Test
+    public void since_shouldBeEmptyBeforeStart() {
+        ChangeLog log = new ChangeLog(10);
+        assertThat(log.since(0, null)).isEqualTo(new ChangeFeed(log.getEpoch(), 0, false, List.of()));
+    }
+
+    private static CountryChange updated(long version, String code) {
+        return new CountryChange(version, code, CountryChange.Type.UPDATED, "hash-" + code + "-" + version);
+    }
+}
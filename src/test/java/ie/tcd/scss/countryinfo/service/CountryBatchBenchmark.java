@@ -0,0 +1,103 @@
+package ie.tcd.scss.countryinfo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import ie.tcd.scss.countryinfo.query.QueryExecutor;
+import ie.tcd.scss.countryinfo.upstream.FakeUpstreamServer;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares resolving n queries with one POST /countries/batch against n lookups of one country each, as a client of
+ * GET /countries/{countryname} does, with FakeUpstreamServer answering after a fixed latency. The "snapshot" queries
+ * are exact names, which a batch finds in the snapshot; the "upstream" queries are partial names, which always go to
+ * the restcountries API. For each n, prints the time per n queries, the queries per second and the upstream calls
+ * made per n queries. Run with mvn test -Pperf.
+ */
+@Tag("perf")
+public class CountryBatchBenchmark {
+
+    private static final int[] SIZES = {6, 60, 300};
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(10);
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long MEASUREMENT_NANOS = 2_000_000_000L;
+
+    private static final List<String> SNAPSHOT_QUERIES =
+            List.of("Ireland", "Germany", "France", "South Africa", "Russia", "Bolivia");
+    private static final List<String> UPSTREAM_QUERIES = List.of("irel", "germ", "fran", "south", "russ", "boliv");
+
+    @Test
+    public void compareBatchWithSingleLookups() {
+        try (FakeUpstreamServer upstream = FakeUpstreamServer.start()) {
+            CountryInfoProperties properties = new CountryInfoProperties();
+            properties.getUpstream().setBaseUrl(upstream.getBaseUrl());
+            // pooled connections, like the RestTemplate of the application
+            RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory());
+            ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+            CountryDataset dataset = new CountryDataset(restTemplate, objectMapper, properties,
+                    QueryExecutor.sequential(), event -> { });
+            dataset.refresh();
+            CountryService countryService = new CountryService(restTemplate, dataset, properties, objectMapper,
+                    ObservationRegistry.NOOP);
+            CountryBatchService batchService = new CountryBatchService(restTemplate, dataset, countryService,
+                    properties, QueryExecutor.sequential());
+            upstream.setLatency(UPSTREAM_LATENCY, Duration.ZERO);
+
+            try {
+                System.out.printf("%-8s %5s %-6s %12s %12s %14s%n",
+                        "queries", "n", "mode", "ms per n", "queries/s", "upstream calls");
+                for (String workload : List.of("snapshot", "upstream")) {
+                    for (int n : SIZES) {
+                        List<String> queries = replicate(
+                                workload.equals("snapshot") ? SNAPSHOT_QUERIES : UPSTREAM_QUERIES, n);
+                        report(workload, n, "single", upstream, () -> queries.forEach(
+                                query -> assertThat(countryService.getCountryInfo(query)).isNotNull()));
+                        report(workload, n, "batch", upstream, () -> assertThat(
+                                batchService.lookup(queries, null).results())
+                                .allMatch(result -> result.status() == BatchResult.Status.FOUND));
+                    }
+                }
+            } finally {
+                batchService.shutdown();
+            }
+        }
+    }
+
+    private static void report(String workload, int n, String mode, FakeUpstreamServer upstream, Runnable lookups) {
+        long end = System.nanoTime() + WARMUP_NANOS;
+        do {
+            lookups.run();
+        } while (System.nanoTime() < end);
+        long rounds = 0;
+        long requests = upstream.getRequestCount();
+        long start = System.nanoTime();
+        end = start + MEASUREMENT_NANOS;
+        long now;
+        do {
+            lookups.run();
+            rounds++;
+            now = System.nanoTime();
+        } while (now < end);
+        double nanosPerRound = (double) (now - start) / rounds;
+        System.out.printf("%-8s %5d %-6s %12.2f %12.0f %14.1f%n", workload, n, mode, nanosPerRound / 1e6,
+                n * 1e9 / nanosPerRound, (double) (upstream.getRequestCount() - requests) / rounds);
+    }
+
+    private static List<String> replicate(List<String> queries, int n) {
+        List<String> replicated = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            replicated.add(queries.get(i % queries.size()));
+        }
+        return replicated;
+    }
+}
@@ -0,0 +1,172 @@
+package ie.tcd.scss.countryinfo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import ie.tcd.scss.countryinfo.query.QueryExecutor;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class CountryBatchServiceTest {
+
+    private final CountryInfoProperties properties = new CountryInfoProperties();
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private MockRestServiceServer upstream;
+    private CountryBatchService batchService;
+
+    @BeforeEach
+    public void setUp() {
+        upstream = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        properties.getBatch().setUpstreamConcurrency(1);
+        properties.getBatch().setMaxUpstreamNames(3);
+        CountryDataset dataset = new CountryDataset(restTemplate, objectMapper, properties,
+                QueryExecutor.sequential(), event -> { });
+        respondWith(CountryService.PATH_ALL, country("IE", "IRL", "Ireland"), country("DE", "DEU", "Germany"));
+        dataset.refresh();
+        upstream.reset();
+
+        CountryService countryService = new CountryService(restTemplate, dataset, properties, objectMapper,
+                ObservationRegistry.NOOP);
+        batchService = new CountryBatchService(restTemplate, dataset, countryService, properties,
+                QueryExecutor.sequential());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        batchService.shutdown();
+    }
+
+    @Test
+    public void lookup_shouldResolveNamesAndCodesInQueryOrder() {
+        respondWith(CountryService.PATH_BYNAME + "spain", country("ES", "ESP", "Spain"));
+        respondWith(CountryService.PATH_BYCODES + "fr,xx", country("FR", "FRA", "France"));
+
+        BatchResponse response = batchService.lookup(List.of("Ireland", "deu", "Spain", "FR", "xx"), null);
+
+        assertThat(response.results()).extracting(BatchResult::query, BatchResult::status, this::commonName)
+                .containsExactly(
+                        tuple("Ireland", BatchResult.Status.FOUND, "Ireland"),
+                        tuple("deu", BatchResult.Status.FOUND, "Germany"),
+                        tuple("Spain", BatchResult.Status.FOUND, "Spain"),
+                        tuple("FR", BatchResult.Status.FOUND, "France"),
+                        tuple("xx", BatchResult.Status.NOT_FOUND, null));
+        upstream.verify();
+    }
+
+    @Test
+    public void lookup_shouldResolveDuplicatesOnce() {
+        respondWith(CountryService.PATH_BYNAME + "spain", country("ES", "ESP", "Spain"));
+
+        BatchResponse response = batchService.lookup(List.of("Spain", " spain ", "SPAIN", "ireland", "IRELAND"), null);
+
+        assertThat(response.results()).extracting(BatchResult::query, this::commonName).containsExactly(
+                tuple("Spain", "Spain"),
+                tuple(" spain ", "Spain"),
+                tuple("SPAIN", "Spain"),
+                tuple("ireland", "Ireland"),
+                tuple("IRELAND", "Ireland"));
+        upstream.verify(); // exactly one call for the three spellings of Spain
+    }
+
+    @Test
+    public void lookup_shouldNotLookUpBlankQueries() {
+        BatchResponse response = batchService.lookup(Arrays.asList("", "  ", null, "Germany"), null);
+
+        assertThat(response.results()).extracting(BatchResult::status).containsExactly(
+                BatchResult.Status.NOT_FOUND, BatchResult.Status.NOT_FOUND, BatchResult.Status.NOT_FOUND,
+                BatchResult.Status.FOUND);
+        upstream.verify();
+    }
+
+    @Test
+    public void lookup_shouldReportUpstreamFailuresPerQuery() {
+        respondWith(CountryService.PATH_BYNAME + "spain", country("ES", "ESP", "Spain"));
+        upstream.expect(requestTo(properties.getUpstream().url(CountryService.PATH_BYNAME + "narnia")))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+        upstream.expect(requestTo(properties.getUpstream().url(CountryService.PATH_BYNAME + "atlantis")))
+                .andRespond(withStatus(HttpStatus.INTERNAL_SERVER_ERROR));
+        upstream.expect(requestTo(properties.getUpstream().url(CountryService.PATH_BYCODES + "zz")))
+                .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+
+        BatchResponse response = batchService.lookup(List.of("Spain", "Narnia", "Atlantis", "zz"), null);
+
+        assertThat(response.results()).extracting(BatchResult::query, BatchResult::status).containsExactly(
+                tuple("Spain", BatchResult.Status.FOUND),
+                tuple("Narnia", BatchResult.Status.NOT_FOUND),
+                tuple("Atlantis", BatchResult.Status.ERROR),
+                tuple("zz", BatchResult.Status.ERROR));
+        assertThat(response.results().get(2).error()).contains("500");
+        upstream.verify();
+    }
+
+    @Test
+    public void lookup_shouldEncodeNamesUpstream() {
+        respondWith(CountryService.PATH_BYNAME + "bosnia%2Fherzegovina",
+                country("BA", "BIH", "Bosnia and Herzegovina"));
+        upstream.expect(requestTo(properties.getUpstream().url(CountryService.PATH_BYNAME + "narnia%3Fx%3D1%23y")))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+        upstream.expect(requestTo(properties.getUpstream().url(CountryService.PATH_BYNAME + "%7Batlantis%7D")))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+        BatchResponse response = batchService.lookup(List.of("Bosnia/Herzegovina", "Narnia?x=1#y", "{Atlantis}"),
+                null);
+
+        assertThat(response.results()).extracting(BatchResult::query, BatchResult::status).containsExactly(
+                tuple("Bosnia/Herzegovina", BatchResult.Status.FOUND),
+                tuple("Narnia?x=1#y", BatchResult.Status.NOT_FOUND),
+                tuple("{Atlantis}", BatchResult.Status.NOT_FOUND));
+        upstream.verify();
+    }
+
+    @Test
+    public void lookup_shouldCapNamesLookedUpUpstream() {
+        for (String name : List.of("spain", "italy", "norway")) {
+            upstream.expect(requestTo(properties.getUpstream().url(CountryService.PATH_BYNAME + name)))
+                    .andRespond(withStatus(HttpStatus.NOT_FOUND));
+        }
+
+        BatchResponse response = batchService.lookup(
+                List.of("Spain", "Italy", "Ireland", "Norway", "Sweden", "Spain", "Austria"), null);
+
+        assertThat(response.results()).extracting(BatchResult::query, BatchResult::status).containsExactly(
+                tuple("Spain", BatchResult.Status.NOT_FOUND),
+                tuple("Italy", BatchResult.Status.NOT_FOUND),
+                tuple("Ireland", BatchResult.Status.FOUND), // in the snapshot, so not counted
+                tuple("Norway", BatchResult.Status.NOT_FOUND),
+                tuple("Sweden", BatchResult.Status.ERROR),
+                tuple("Spain", BatchResult.Status.NOT_FOUND),
+                tuple("Austria", BatchResult.Status.ERROR));
+        assertThat(response.results().get(4).error()).contains("at most 3");
+        upstream.verify();
+    }
+
+    private String commonName(BatchResult result) {
+        return result.country() != null ? result.country().getName().getCommon() : null;
+    }
+
+    private void respondWith(String path, String... countries) {
+        upstream.expect(requestTo(properties.getUpstream().url(path)))
+                .andRespond(withSuccess("[" + String.join(",", countries) + "]", MediaType.APPLICATION_JSON));
+    }
+
+    private static String country(String cca2, String cca3, String commonName) {
+        return "{\"cca2\":\"" + cca2 + "\",\"cca3\":\"" + cca3 + "\",\"name\":{\"common\":\"" + commonName
+                + "\",\"official\":\"" + commonName + "\"},\"region\":\"Europe\",\"population\":1000000}";
+    }
+}
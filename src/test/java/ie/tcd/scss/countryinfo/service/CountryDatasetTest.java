@@ -0,0 +1,102 @@
+package ie.tcd.scss.countryinfo.service;
+
+import ie.tcd.scss.countryinfo.config.CountryInfoProperties;
+import ie.tcd.scss.countryinfo.query.QueryExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class CountryDatasetTest {
+
+    private static final String IRELAND = country("IRL", "Ireland", 4994724);
+    private static final String GERMANY = country("DEU", "Germany", 83240525);
+    private static final String FRANCE = country("FRA", "France", 67391582);
+
+    private final CountryInfoProperties properties = new CountryInfoProperties();
+    private final RestTemplate restTemplate = new RestTemplate();
+    private MockRestServiceServer upstream;
+    private CountryDataset dataset;
+
+    @BeforeEach
+    public void setUp() {
+        upstream = MockRestServiceServer.bindTo(restTemplate).build();
+        properties.getRefresh().setChangeLogSize(100);
+        dataset = new CountryDataset(restTemplate, Jackson2ObjectMapperBuilder.json().build(), properties,
+                QueryExecutor.sequential(), event -> { });
+    }
+
+    @Test
+    public void refresh_shouldOnlyReportChangedCountries() {
+        respondWith(IRELAND, GERMANY, FRANCE);
+        respondWith(country("IRL", "Ireland", 5000000), GERMANY, country("ESP", "Spain", 47351567));
+
+        assertThat(dataset.refresh()).isEmpty(); // the first load has nothing to compare with
+        CountryRecord germany = dataset.getSnapshot().getRecord("DEU");
+        List<CountryChange> changes = dataset.refresh();
+
+        assertThat(changes).extracting(CountryChange::code, CountryChange::type).containsExactly(
+                tuple("IRL", CountryChange.Type.UPDATED),
+                tuple("ESP", CountryChange.Type.ADDED),
+                tuple("FRA", CountryChange.Type.REMOVED));
+        assertThat(changes).allMatch(change -> change.version() == 2);
+        CountrySnapshot snapshot = dataset.getSnapshot();
+        assertThat(snapshot.getVersion()).isEqualTo(2);
+        assertThat(snapshot.getRecord("DEU")).isSameAs(germany); // unchanged, so not deserialized again
+        assertThat(snapshot.getRecord("FRA")).isNull();
+        assertThat(dataset.getChanges(1, null).changes()).isEqualTo(changes);
+        upstream.verify();
+    }
+
+    @Test
+    public void refresh_shouldKeepVersionIfNothingChanged() {
+        respondWith(IRELAND, GERMANY);
+        respondWith(GERMANY, IRELAND);
+
+        dataset.refresh();
+        assertThat(dataset.refresh()).isEmpty();
+
+        assertThat(dataset.getSnapshot().getVersion()).isEqualTo(1);
+        String epoch = dataset.getChanges(0, null).epoch();
+        assertThat(dataset.getChanges(0, null)).isEqualTo(new ChangeFeed(epoch, 1, false, List.of()));
+        assertThat(dataset.getChanges(1, epoch)).isEqualTo(new ChangeFeed(epoch, 1, true, List.of()));
+    }
+
+    @Test
+    public void refresh_shouldSkipMalformedCountries() {
+        String withoutName = "{\"cca3\":\"XXX\",\"population\":1}";
+        String malformedIreland = "{\"cca3\":\"IRL\",\"name\":{\"common\":\"Ireland\"},\"population\":\"many\"}";
+        respondWith(IRELAND, withoutName, GERMANY, "{\"cca3\":\"FRA\",\"name\":{\"common\":\"France\"},\"population\":[]}");
+        respondWith(malformedIreland, GERMANY, FRANCE);
+
+        dataset.refresh();
+        assertThat(dataset.getSnapshot().getRecords()).extracting(CountryRecord::getCode)
+                .containsExactly("DEU", "IRL");
+
+        List<CountryChange> changes = dataset.refresh();
+        // the malformed update of Ireland is skipped and the last good version kept, France is fixed
+        assertThat(changes).extracting(CountryChange::code).containsExactly("FRA");
+        assertThat(dataset.getSnapshot().getRecords()).extracting(CountryRecord::getCode)
+                .containsExactly("DEU", "FRA", "IRL");
+        assertThat(dataset.getSnapshot().getRecord("IRL").getCountry().getPopulation()).isEqualTo(4994724);
+    }
+
+    private void respondWith(String... countries) {
+        upstream.expect(requestTo(properties.getUpstream().url(CountryService.PATH_ALL)))
+                .andRespond(withSuccess("[" + String.join(",", countries) + "]", MediaType.APPLICATION_JSON));
+    }
+
+    private static String country(String code, String commonName, int population) {
+        return "{\"cca3\":\"" + code + "\",\"name\":{\"common\":\"" + commonName + "\",\"official\":\"" + commonName
+                + "\"},\"region\":\"Europe\",\"population\":" + population + "}";
+    }
+}
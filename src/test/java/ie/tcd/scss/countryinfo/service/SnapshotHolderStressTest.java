@@ -0,0 +1,198 @@
+package ie.tcd.scss.countryinfo.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ie.tcd.scss.countryinfo.aggregation.AggregateFunction;
+import ie.tcd.scss.countryinfo.aggregation.GroupBy;
+import ie.tcd.scss.countryinfo.aggregation.Metric;
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.query.QueryExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Publishes new versions while reader threads keep checking that every snapshot they get is complete and consistent
+ * and that versions never go back.
+ */
+public class SnapshotHolderStressTest {
+
+    private static final int READERS = 4;
+    private static final long DURATION_NANOS = 1_500_000_000L;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // every element of the payload is the version, unless a reader sees a half-written snapshot
+    private record Payload(long version, long[] values) {
+    }
+
+    @Test
+    public void publish_fromConcurrentWriters_shouldOnlyMoveForward() throws InterruptedException {
+        SnapshotHolder<Payload> holder = new SnapshotHolder<>(Payload::version);
+        AtomicLong nextVersion = new AtomicLong();
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+        Runnable writer = () -> {
+            long version = nextVersion.incrementAndGet();
+            long[] values = new long[64];
+            Arrays.fill(values, version);
+            holder.publish(new Payload(version, values));
+        };
+        long reads = run(2, writer, READERS, lastSeen -> {
+            Payload payload = holder.get();
+            if (payload == null) {
+                return lastSeen;
+            }
+            if (payload.version() < lastSeen) {
+                failures.add("version went back from " + lastSeen + " to " + payload.version());
+            }
+            for (long value : payload.values()) {
+                if (value != payload.version()) {
+                    failures.add("version " + payload.version() + " contains " + value);
+                }
+            }
+            return payload.version();
+        });
+
+        assertThat(failures).isEmpty();
+        assertThat(reads).isPositive();
+        assertThat(holder.get().version()).isEqualTo(nextVersion.get()); // the newest version won
+        assertThat(holder.publish(new Payload(1, new long[0]))).isFalse();
+    }
+
+    @Test
+    public void getSnapshot_whileRefreshing_shouldSeeConsistentIndexes() throws IOException, InterruptedException {
+        List<byte[]> fixtures = readFixtures();
+        SnapshotHolder<CountrySnapshot> holder = new SnapshotHolder<>(CountrySnapshot::getVersion);
+        holder.publish(snapshot(1, fixtures, null));
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+        Runnable writer = () -> holder.publish(snapshot(holder.get().getVersion() + 1, fixtures, holder.get()));
+        long reads = run(1, writer, READERS, lastSeen -> {
+            CountrySnapshot snapshot = holder.get();
+            long version = snapshot.getVersion();
+            if (version < lastSeen) {
+                failures.add("version went back from " + lastSeen + " to " + version);
+            }
+            // every country carries the version in its population, see snapshot()
+            double population = 0;
+            for (CountryRecord record : snapshot.getRecords()) {
+                if (record.getCountry().getPopulation() % 1000 != version % 1000) {
+                    failures.add("version " + version + " contains " + record.getCode() + " of another version");
+                }
+                population += record.getCountry().getPopulation();
+                if (snapshot.find(record.getCountry().getName().getCommon()) != record) {
+                    failures.add("version " + version + " finds another record for " + record.getCode());
+                }
+            }
+            double rolledUp = snapshot.getRollup(GroupBy.REGION).toMap(AggregateFunction.SUM, Metric.POPULATION)
+                    .values().stream().mapToDouble(Double::doubleValue).sum();
+            if (rolledUp != population) {
+                failures.add("version " + version + " has a rollup of " + rolledUp + " instead of " + population);
+            }
+            return version;
+        });
+
+        assertThat(failures).isEmpty();
+        assertThat(reads).isPositive();
+        assertThat(holder.get().getVersion()).isGreaterThan(1);
+    }
+
+    /**
+     * Runs the writers in a loop and the readers until the time is up.
+     *
+     * @return The number of reads
+     */
+    private static long run(int writers, Runnable writer, int readers, Reader reader) throws InterruptedException {
+        long end = System.nanoTime() + DURATION_NANOS;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong reads = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                while (System.nanoTime() < end) {
+                    writer.run();
+                }
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                long lastSeen = 0;
+                while (System.nanoTime() < end) {
+                    lastSeen = reader.read(lastSeen);
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return reads.get();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Builds a snapshot of the fixtures whose populations end in the version, so that readers can tell versions apart.
+     */
+    private CountrySnapshot snapshot(long version, List<byte[]> fixtures, CountrySnapshot previous) {
+        List<CountryRecord> records = new ArrayList<>();
+        try {
+            for (byte[] fixture : fixtures) {
+                for (Country country : mapper.readValue(fixture, Country[].class)) {
+                    country.setPopulation(country.getPopulation() / 1000 * 1000 + (int) (version % 1000));
+                    records.add(new CountryRecord(country.getCca3(), Long.toString(version), country, fixture));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        records.sort(Comparator.comparing(CountryRecord::getCode));
+        return CountrySnapshot.build(version, records, previous, 10, 10, QueryExecutor.sequential());
+    }
+
+    private List<byte[]> readFixtures() throws IOException {
+        List<byte[]> fixtures = new ArrayList<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver()
+                .getResources("classpath:upstream/v3.1/name/*.json")) {
+            try (InputStream in = resource.getInputStream()) {
+                fixtures.add(in.readAllBytes());
+            }
+        }
+        return fixtures;
+    }
+
+    private interface Reader {
+        /**
+         * Reads a snapshot and checks it.
+         *
+         * @param lastSeen The version of the snapshot read before, 0 at first
+         * @return The version of the snapshot read
+         */
+        long read(long lastSeen);
+    }
+}
@@ -0,0 +1,65 @@
+package ie.tcd.scss.countryinfo.similarity;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+import ie.tcd.scss.countryinfo.domain.Currency;
+import ie.tcd.scss.countryinfo.query.QueryExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SimilarityTableTest {
+
+    private static final Country IRELAND = country("IRL", "Europe", "Northern Europe", List.of("GBR"),
+            Map.of("eng", "English", "gle", "Irish"), "EUR", "UTC", 5_000_000, 70_000);
+    private static final Country UNITED_KINGDOM = country("GBR", "Europe", "Northern Europe", List.of("IRL"),
+            Map.of("eng", "English"), "GBP", "UTC", 67_000_000, 240_000);
+    private static final Country MALTA = country("MLT", "Europe", "Southern Europe", List.of(),
+            Map.of("eng", "English", "mlt", "Maltese"), "EUR", "UTC+01:00", 500_000, 316);
+    private static final Country JAPAN = country("JPN", "Asia", "Eastern Asia", List.of(),
+            Map.of("jpn", "Japanese"), "JPY", "UTC+09:00", 125_000_000, 377_000);
+
+    @Test
+    public void build_shouldRankCountriesByFeatureOverlap() {
+        CountryFeatures features = CountryFeatures.of(List.of(IRELAND, UNITED_KINGDOM, MALTA, JAPAN));
+
+        SimilarityTable table = SimilarityTable.build(features, 2, QueryExecutor.sequential());
+
+        // the neighbour sharing language, region and subregion first, then the one sharing currency and language
+        assertThat(table.neighbour(0, 0)).isEqualTo(1);
+        assertThat(table.neighbour(0, 1)).isEqualTo(2);
+        assertThat(table.score(0, 0)).isGreaterThanOrEqualTo(table.score(0, 1));
+        assertThat(table.score(0, 0)).isBetween(0.0, 1.0);
+        // Japan shares nothing but the scale of its population and area with the others
+        assertThat(features.similarity(3, 0)).isLessThan(features.similarity(2, 0));
+        assertThat(features.similarity(0, 3)).isEqualTo(features.similarity(3, 0));
+    }
+
+    @Test
+    public void build_withFewerCountriesThanK_shouldLeaveRanksEmpty() {
+        CountryFeatures features = CountryFeatures.of(List.of(IRELAND, MALTA));
+
+        SimilarityTable table = SimilarityTable.build(features, 3, QueryExecutor.sequential());
+
+        assertThat(table.neighbour(1, 0)).isEqualTo(0);
+        assertThat(table.neighbour(1, 1)).isEqualTo(-1);
+    }
+
+    private static Country country(String cca3, String region, String subregion, List<String> borders,
+                                   Map<String, String> languages, String currency, String timezone,
+                                   int population, int area) {
+        Country country = new Country();
+        country.setCca3(cca3);
+        country.setRegion(region);
+        country.setSubregion(subregion);
+        country.setBorders(borders);
+        country.setLanguages(languages);
+        country.setCurrencies(Map.of(currency, new Currency()));
+        country.setTimezones(List.of(timezone));
+        country.setPopulation(population);
+        country.setArea(area);
+        return country;
+    }
+}
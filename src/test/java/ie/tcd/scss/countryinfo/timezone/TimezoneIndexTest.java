@@ -0,0 +1,76 @@
+package ie.tcd.scss.countryinfo.timezone;
+
+import ie.tcd.scss.countryinfo.domain.Country;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimezoneIndexTest {
+
+    private static final List<Country> COUNTRIES = List.of(
+            country("monday", "UTC"),                               // 0, Ireland
+            country("monday", "UTC+01:00"),                         // 1, Germany
+            country("sunday", "UTC+03:00"),                         // 2, Saudi Arabia
+            country("monday", "UTC+05:30"),                         // 3, India
+            country("monday", "UTC-10:00", "UTC+01:00", "UTC+12:00"), // 4, France
+            country("monday", "UTC-05:00", "UTC-04:00"),            // 5
+            country("monday"));                                     // 6, no time zones
+
+    private final TimezoneIndex index = TimezoneIndex.of(COUNTRIES);
+
+    @Test
+    public void withOffsetBetween_shouldFindCountriesByRange() {
+        assertThat(index.withOffsetBetween(60, 61)).isEqualTo(bits(1, 4));
+        assertThat(index.withOffsetBetween(-300, 0)).isEqualTo(bits(5));
+        assertThat(index.withOffsetBetween(0, 331)).isEqualTo(bits(0, 1, 2, 3, 4));
+        assertThat(index.offsetsOf(4)).containsExactly(-600, 60, 720);
+        assertThat(index.offsetsOf(6)).isEmpty();
+    }
+
+    @Test
+    public void inBusinessHours_shouldUseLocalTimeAndWeekend() {
+        // Thursday 10:00 UTC: 10:00 in Ireland, 11:00 in Germany, 13:00 in Saudi Arabia, 15:30 in India,
+        // 00:00 (Wednesday) to 22:00 in France, 05:00 and 06:00 for country 5
+        Instant thursday = Instant.parse("2024-03-07T10:00:00Z");
+        assertThat(index.inBusinessHours(thursday, 9 * 60, 17 * 60)).isEqualTo(bits(0, 1, 2, 3, 4));
+        assertThat(index.inBusinessHours(thursday, 14 * 60, 16 * 60)).isEqualTo(bits(3));
+
+        // Friday 10:00 UTC: the weekend in Saudi Arabia, which starts its week on Sunday
+        Instant friday = Instant.parse("2024-03-08T10:00:00Z");
+        assertThat(index.inBusinessHours(friday, 9 * 60, 17 * 60)).isEqualTo(bits(0, 1, 3, 4));
+
+        // Sunday 23:00 UTC: already Monday 11:00 at UTC+12:00 in France; elsewhere Sunday, or Monday before 9:00
+        Instant sunday = Instant.parse("2024-03-10T23:00:00Z");
+        assertThat(index.inBusinessHours(sunday, 9 * 60, 17 * 60)).isEqualTo(bits(4));
+    }
+
+    @Test
+    public void parse_shouldReadApiTimezones() {
+        assertThat(UtcOffsets.parse("UTC")).isZero();
+        assertThat(UtcOffsets.parse("UTC+05:30")).isEqualTo(330);
+        assertThat(UtcOffsets.parse("UTC-03:00")).isEqualTo(-180);
+        assertThat(UtcOffsets.parse("GMT+1")).isEqualTo(UtcOffsets.NO_OFFSET);
+        assertThat(UtcOffsets.format(330)).isEqualTo("UTC+05:30");
+        assertThat(UtcOffsets.format(-600)).isEqualTo("UTC-10:00");
+        assertThat(UtcOffsets.format(0)).isEqualTo("UTC");
+    }
+
+    private static Country country(String startOfWeek, String... timezones) {
+        Country country = new Country();
+        country.setStartOfWeek(startOfWeek);
+        country.setTimezones(List.of(timezones));
+        return country;
+    }
+
+    private static BitSet bits(int... positions) {
+        BitSet bits = new BitSet();
+        for (int position : positions) {
+            bits.set(position);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,31 @@
+package ie.tcd.scss.countryinfo.timezone;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UtcOffsetsTest {
+
+    @Test
+    public void parse_shouldAcceptHyphenAndUnicodeMinus() {
+        assertThat(UtcOffsets.parse("UTC-03:30")).isEqualTo(-210);
+        assertThat(UtcOffsets.parse("UTC−03:30")).isEqualTo(-210);
+        assertThat(UtcOffsets.parse(" UTC+14:00 ")).isEqualTo(840);
+    }
+
+    @Test
+    public void parse_shouldRejectOtherSigns() {
+        // only '+', '-' and U+2212 are signs, not the characters between them
+        assertThat(UtcOffsets.parse("UTC,05:00")).isEqualTo(UtcOffsets.NO_OFFSET);
+        assertThat(UtcOffsets.parse("UTCA05:00")).isEqualTo(UtcOffsets.NO_OFFSET);
+        assertThat(UtcOffsets.parse("UTC 05:00")).isEqualTo(UtcOffsets.NO_OFFSET);
+        assertThat(UtcOffsets.parse("UTC05:00")).isEqualTo(UtcOffsets.NO_OFFSET);
+    }
+
+    @Test
+    public void parse_shouldRejectOffsetsOutOfRange() {
+        assertThat(UtcOffsets.parse("UTC-12:30")).isEqualTo(UtcOffsets.NO_OFFSET);
+        assertThat(UtcOffsets.parse("UTC+14:01")).isEqualTo(UtcOffsets.NO_OFFSET);
+        assertThat(UtcOffsets.parse(null)).isEqualTo(UtcOffsets.NO_OFFSET);
+    }
+}
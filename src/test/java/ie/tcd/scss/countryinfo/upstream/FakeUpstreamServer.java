@@ -0,0 +1,350 @@
+package ie.tcd.scss.countryinfo.upstream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Local stand-in for the https://restcountries.com/v3.1 API, so that tests and benchmarks run without network access
+ * and with repeatable responses. Point the application at it with the countryinfo.upstream.base-url property set to
+ * getBaseUrl().
+ *
+ * The responses are the recorded fixtures in src/test/resources/upstream/v3.1/name, one file per country named after
+ * its lower case common name with dashes for spaces (e.g. south-africa.json). Served are:
+ * - /v3.1/name/{name}: the fixture of that name, otherwise all countries whose common or official name contains it
+ * - /v3.1/all: all fixtures
+ * - /v3.1/alpha?codes=: the countries with one of the given cca2, cca3, ccn3 or cioc codes
+ * All of them support the fields parameter, and answer 404 if nothing matches, like the real API.
+ *
+ * With setImagesServed(true), the flag and coat of arms URLs in the responses point at the server itself instead of
+ * the third-party hosts: https://{host}/{path} becomes /images/{host}/{path}, which serves the file
+ * src/test/resources/upstream/images/{host}/{path}, or answers 404 if there is none.
+ *
+ * For performance tests, latency, errors and bigger payloads can be injected while the server is running.
+ */
+public class FakeUpstreamServer implements AutoCloseable {
+
+    private static final String FIXTURES = "/upstream/v3.1/name";
+    private static final String IMAGES = "/upstream/images/";
+    private static final String NOT_FOUND = "{\"status\":404,\"message\":\"Not Found\"}";
+    private static final String UNAVAILABLE = "{\"status\":503,\"message\":\"Service Unavailable\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, ArrayNode> fixtures; // by file name without .json
+    private final ArrayNode all;
+    private final Map<String, byte[]> responses = new ConcurrentHashMap<>(); // by request URI, padding and images
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final Random random = new Random(42); // fixed seed, so that injected errors are repeatable
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration latencyJitter = Duration.ZERO;
+    private volatile double errorRate;
+    private volatile int paddingBytes;
+    private volatile boolean imagesServed;
+
+    private FakeUpstreamServer() throws IOException {
+        this.fixtures = loadFixtures();
+        this.all = objectMapper.createArrayNode();
+        fixtures.values().forEach(all::addAll);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newCachedThreadPool(); // concurrent requests must not wait for each other's latency
+        server.setExecutor(executor);
+        server.createContext("/v3.1/", this::handle);
+        server.createContext("/images/", this::handleImage);
+    }
+
+    /**
+     * Starts a server on a free port of the loopback interface.
+     *
+     * @return The running server
+     */
+    public static FakeUpstreamServer start() {
+        try {
+            FakeUpstreamServer upstream = new FakeUpstreamServer();
+            upstream.server.start();
+            return upstream;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The URL to use as countryinfo.upstream.base-url
+     */
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/v3.1";
+    }
+
+    /**
+     * @return The number of requests received so far, e.g. to check how many requests reached the upstream
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @param latency The time every response is delayed by
+     * @param jitter The maximum random delay added to the latency
+     */
+    public void setLatency(Duration latency, Duration jitter) {
+        this.latency = latency;
+        this.latencyJitter = jitter;
+    }
+
+    /**
+     * @param errorRate The fraction of requests, between 0 and 1, that fail with 503 Service Unavailable
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @param paddingBytes The size of an additional, unknown property added to every country, to simulate bigger
+     *                     payloads
+     */
+    public void setPaddingBytes(int paddingBytes) {
+        this.paddingBytes = paddingBytes;
+    }
+
+    /**
+     * @param imagesServed Whether the image URLs in the responses point at the fixture images of this server. Set it
+     *                     before the application loads the data set, which keeps the URLs it was loaded with.
+     */
+    public void setImagesServed(boolean imagesServed) {
+        this.imagesServed = imagesServed;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            delay();
+            if (errorRate > 0 && random.nextDouble() < errorRate) {
+                send(exchange, 503, UNAVAILABLE.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            URI uri = exchange.getRequestURI();
+            int padding = paddingBytes;
+            boolean images = imagesServed;
+            byte[] body = responses.computeIfAbsent(uri + "#" + padding + "#" + images,
+                    key -> respond(uri, padding, images));
+            if (body.length == 0) {
+                send(exchange, 404, NOT_FOUND.getBytes(StandardCharsets.UTF_8));
+            } else {
+                send(exchange, 200, body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleImage(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            delay();
+            String path = exchange.getRequestURI().getPath().substring("/images/".length());
+            byte[] image = null;
+            if (!path.contains("..")) {
+                try (InputStream in = FakeUpstreamServer.class.getResourceAsStream(IMAGES + path)) {
+                    image = in != null ? in.readAllBytes() : null;
+                }
+            }
+            if (image == null) {
+                send(exchange, 404, NOT_FOUND.getBytes(StandardCharsets.UTF_8));
+            } else {
+                exchange.getResponseHeaders().set("Content-Type",
+                        path.endsWith(".svg") ? "image/svg+xml" : "image/png");
+                exchange.sendResponseHeaders(200, image.length);
+                exchange.getResponseBody().write(image);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return The response body, or an empty array if no country matches
+     */
+    private byte[] respond(URI uri, int padding, boolean images) {
+        String path = uri.getPath().endsWith("/") ? uri.getPath().substring(0, uri.getPath().length() - 1)
+                : uri.getPath();
+        Map<String, String> parameters = parameters(uri.getRawQuery());
+        ArrayNode countries;
+        if (path.equals("/v3.1/all")) {
+            countries = all;
+        } else if (path.startsWith("/v3.1/name/")) {
+            countries = byName(path.substring("/v3.1/name/".length()));
+        } else if (path.equals("/v3.1/alpha")) {
+            countries = byCodes(parameters.getOrDefault("codes", ""));
+        } else {
+            countries = objectMapper.createArrayNode();
+        }
+        if (countries.isEmpty()) {
+            return new byte[0];
+        }
+
+        String fields = parameters.get("fields");
+        Set<String> selected = fields == null ? null : Set.of(fields.split(","));
+        ArrayNode response = objectMapper.createArrayNode();
+        for (JsonNode country : countries) {
+            ObjectNode copy = ((ObjectNode) country).deepCopy();
+            if (selected != null) {
+                copy.retain(selected);
+            }
+            if (padding > 0) {
+                copy.put("padding", "x".repeat(padding));
+            }
+            if (images) {
+                serveImages(copy.path("flags"));
+                serveImages(copy.path("coatOfArms"));
+            }
+            response.add(copy);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void serveImages(JsonNode images) {
+        if (images instanceof ObjectNode urls) {
+            for (String format : new String[] {"png", "svg"}) {
+                String url = urls.path(format).asText();
+                if (url.startsWith("https://")) {
+                    urls.put(format, getImagesUrl() + url.substring("https://".length()));
+                }
+            }
+        }
+    }
+
+    private String getImagesUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/images/";
+    }
+
+    private ArrayNode byName(String name) {
+        String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        ArrayNode fixture = fixtures.get(lowerCaseName.replace(' ', '-'));
+        if (fixture != null) {
+            return fixture;
+        }
+        ArrayNode matches = objectMapper.createArrayNode();
+        for (JsonNode country : all) {
+            if (country.path("name").path("common").asText().toLowerCase(Locale.ROOT).contains(lowerCaseName)
+                    || country.path("name").path("official").asText().toLowerCase(Locale.ROOT)
+                    .contains(lowerCaseName)) {
+                matches.add(country);
+            }
+        }
+        return matches;
+    }
+
+    private ArrayNode byCodes(String codes) {
+        Set<String> wanted = Stream.of(codes.split(","))
+                .map(code -> code.trim().toUpperCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        ArrayNode matches = objectMapper.createArrayNode();
+        for (JsonNode country : all) {
+            for (String field : new String[] {"cca2", "cca3", "ccn3", "cioc"}) {
+                if (wanted.contains(country.path(field).asText().toUpperCase(Locale.ROOT))) {
+                    matches.add(country);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void delay() {
+        long millis = latency.toMillis();
+        long jitter = latencyJitter.toMillis();
+        if (jitter > 0) {
+            millis += random.nextLong(jitter + 1);
+        }
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static Map<String, String> parameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private Map<String, ArrayNode> loadFixtures() throws IOException {
+        URL directory = FakeUpstreamServer.class.getResource(FIXTURES);
+        if (directory == null) {
+            throw new IllegalStateException("No fixtures found at " + FIXTURES);
+        }
+        Map<String, ArrayNode> loaded = new TreeMap<>(); // sorted, so that /all has a stable order
+        try (Stream<Path> files = Files.list(Paths.get(directory.toURI()))) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".json")).toList()) {
+                String name = file.getFileName().toString();
+                try (InputStream in = Files.newInputStream(file)) {
+                    loaded.put(name.substring(0, name.length() - ".json".length()),
+                            (ArrayNode) objectMapper.readTree(in));
+                }
+            }
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+        return loaded;
+    }
+}